@@ -0,0 +1,77 @@
+package benchmarks;
+
+import models.Account;
+import models.Money;
+import org.openjdk.jmh.annotations.*;
+import services.AccountService;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot paths of AccountService: lookups, login and balance mutations.
+ *
+ * Mutations include the write-ahead log group commit and periodic checkpoints,
+ * so their cost reflects durable posting, not just the in-memory update.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int accounts;
+
+    private File dataDirectory;
+    private AccountService service;
+    private String[] accountNumbers;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataDirectory = BenchmarkData.prepare(accounts, 0);
+        service = new AccountService(dataDirectory.getPath());
+        List<String> numbers = BenchmarkData.accountNumbers(dataDirectory);
+        accountNumbers = numbers.toArray(new String[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        service.checkpoint();
+        BenchmarkData.delete(dataDirectory);
+    }
+
+    private String randomAccount() {
+        return accountNumbers[ThreadLocalRandom.current().nextInt(accountNumbers.length)];
+    }
+
+    @Benchmark
+    public Account authenticateUser() {
+        return service.authenticateUser(randomAccount(), BenchmarkData.PIN);
+    }
+
+    @Benchmark
+    public Account getAccountByNumber() {
+        return service.getAccountByNumber(randomAccount());
+    }
+
+    @Benchmark
+    public boolean deposit() {
+        return service.deposit(randomAccount(), Money.ofMinor(100), "Benchmark deposit");
+    }
+
+    @Benchmark
+    public boolean withdraw() {
+        return service.withdraw(randomAccount(), Money.ofMinor(100), "Benchmark withdrawal");
+    }
+
+    @Benchmark
+    public boolean transfer() {
+        return service.transfer(randomAccount(), randomAccount(), Money.ofMinor(100), "Benchmark transfer");
+    }
+}
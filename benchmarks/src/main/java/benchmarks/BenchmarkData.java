@@ -0,0 +1,112 @@
+package benchmarks;
+
+import models.Account;
+import models.Money;
+import models.Transaction;
+import services.FileManager;
+import services.TransactionJournal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Generates benchmark data directories in the application's on-disk format.
+ *
+ * Generating millions of accounts is slow, so each (accounts, transactions)
+ * combination is written once to a template directory under java.io.tmpdir
+ * and every benchmark trial works on a fresh copy of it.
+ */
+final class BenchmarkData {
+
+    static final String PIN = "1234";
+    static final Money OPENING_BALANCE = Money.ofMajor(1_000_000);
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Returns a scratch data directory with the requested dataset.
+     */
+    static File prepare(int accounts, int transactions) throws IOException {
+        Path template = templateFor(accounts, transactions);
+        Path copy = Files.createTempDirectory("banking-bench-");
+        try (Stream<Path> files = Files.list(template)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (!file.getFileName().toString().equals("READY")) {
+                    Files.copy(file, copy.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+        return copy.toFile();
+    }
+
+    /**
+     * Account numbers of a dataset, in creation order.
+     */
+    static List<String> accountNumbers(File dataDirectory) {
+        List<String> numbers = new ArrayList<>();
+        for (Account account : new FileManager().loadAccounts(new File(dataDirectory, "accounts.dat").getPath())) {
+            numbers.add(account.getAccountNumber());
+        }
+        return numbers;
+    }
+
+    static void delete(File directory) throws IOException {
+        if (directory == null || !directory.exists()) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    static List<Account> generateAccounts(int count) {
+        List<Account> accounts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Account account = new Account("Bench User", String.valueOf(6_000_000_000L + i),
+                    "user" + i + "@bench.example", "Benchmark street " + i,
+                    Account.AccountType.SAVINGS, OPENING_BALANCE);
+            account.setPin(PIN);
+            accounts.add(account);
+        }
+        return accounts;
+    }
+
+    private static Path templateFor(int accounts, int transactions) throws IOException {
+        Path template = Path.of(System.getProperty("java.io.tmpdir"),
+                "banking-bench-template-" + accounts + "-" + transactions);
+        if (Files.exists(template.resolve("READY"))) {
+            return template;
+        }
+
+        delete(template.toFile());
+        Files.createDirectories(template);
+
+        List<Account> accountList = generateAccounts(accounts);
+        if (!new FileManager().saveAccounts(accountList, template.resolve("accounts.dat").toString())) {
+            throw new IOException("Could not write benchmark accounts");
+        }
+
+        List<Transaction> history = new ArrayList<>(transactions);
+        for (int i = 0; i < transactions; i++) {
+            String accountNumber = accountList.get(i % accounts).getAccountNumber();
+            history.add(new Transaction(accountNumber, Transaction.TransactionType.DEPOSIT,
+                    10_000L, OPENING_BALANCE.getMinorUnits(), "Benchmark deposit"));
+        }
+        try (TransactionJournal journal = new TransactionJournal(template.resolve("transactions.journal").toString())) {
+            journal.rewrite(history);
+        }
+
+        Files.createFile(template.resolve("READY"));
+        return template;
+    }
+}
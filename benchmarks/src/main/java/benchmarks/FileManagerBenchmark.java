@@ -0,0 +1,55 @@
+package benchmarks;
+
+import models.Account;
+import org.openjdk.jmh.annotations.*;
+import services.FileManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full account snapshot save and load through FileManager.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileManagerBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int accounts;
+
+    private File directory;
+    private String accountsFile;
+    private FileManager fileManager;
+    private List<Account> accountList;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("banking-bench-fm-").toFile();
+        accountsFile = new File(directory, "accounts.dat").getPath();
+        fileManager = new FileManager();
+        accountList = BenchmarkData.generateAccounts(accounts);
+        fileManager.saveAccounts(accountList, accountsFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public boolean saveAccounts() {
+        return fileManager.saveAccounts(accountList, accountsFile);
+    }
+
+    @Benchmark
+    public List<Account> loadAccounts() {
+        return fileManager.loadAccounts(accountsFile);
+    }
+}
@@ -0,0 +1,65 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import utils.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caller-side cost of a log line from four threads: a disabled DEBUG call,
+ * an enabled INFO call handed to the background writer, and the synchronized
+ * println to a file the services used before. Messages the writer could not
+ * keep up with are dropped, not waited for; the count is printed at the end.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class LoggingBenchmark {
+
+    private Log log;
+    private PrintStream println;
+    private File directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("banking-bench-log").toFile();
+        System.setProperty("banking.log.dir", directory.getPath());
+        System.setProperty("banking.log.level", "INFO");
+        System.setProperty("banking.log.consoleLevel", "OFF");
+        log = Log.get(LoggingBenchmark.class);
+        println = new PrintStream(new BufferedOutputStream(
+                new FileOutputStream(new File(directory, "println.log")), 8192));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Log.flush();
+        println.close();
+        System.out.println("Dropped log messages: " + Log.getDropped() + " (" + directory + ")");
+    }
+
+    @Benchmark
+    public void disabledDebug() {
+        log.debug("Login attempt for account {}", "ACC1000000042");
+    }
+
+    @Benchmark
+    public void enabledInfo() {
+        log.info("Login attempt for account {}", "ACC1000000042");
+    }
+
+    @Benchmark
+    public void synchronizedPrintln() {
+        println.println("DEBUG: Login attempt - Account: " + "ACC1000000042");
+    }
+}
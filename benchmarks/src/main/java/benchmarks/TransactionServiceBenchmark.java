@@ -0,0 +1,74 @@
+package benchmarks;
+
+import models.Transaction;
+import org.openjdk.jmh.annotations.*;
+import services.TransactionService;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recording, history queries and CSV export against ledgers of growing size.
+ * Transactions are spread evenly over the accounts of the dataset.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionServiceBenchmark {
+
+    @Param({"1000"})
+    public int accounts;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int transactions;
+
+    private File dataDirectory;
+    private File exportFile;
+    private TransactionService service;
+    private String[] accountNumbers;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataDirectory = BenchmarkData.prepare(accounts, transactions);
+        exportFile = new File(dataDirectory, "statement.csv");
+        service = new TransactionService(dataDirectory.getPath());
+        service.awaitLoaded();
+        accountNumbers = BenchmarkData.accountNumbers(dataDirectory).toArray(new String[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.delete(dataDirectory);
+    }
+
+    private String randomAccount() {
+        return accountNumbers[ThreadLocalRandom.current().nextInt(accountNumbers.length)];
+    }
+
+    @Benchmark
+    public boolean recordTransaction() {
+        return service.recordTransaction(new Transaction(randomAccount(),
+                Transaction.TransactionType.DEPOSIT, 100L, 100L, "Benchmark deposit"));
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsByAccount() {
+        return service.getTransactionsByAccount(randomAccount());
+    }
+
+    @Benchmark
+    public List<Transaction> getRecentTransactions() {
+        return service.getRecentTransactions(randomAccount(), 10);
+    }
+
+    @Benchmark
+    public boolean exportTransactionsToCSV() {
+        return service.exportTransactionsToCSV(randomAccount(), exportFile.getPath());
+    }
+}
@@ -0,0 +1,124 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import utils.ValidationUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Onboarding validation: the scanner-based ValidationUtils against the
+ * regex implementation it replaced (kept below as {@link Legacy}).
+ * Each invocation validates one full customer record.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidationBenchmark {
+
+    private static final int RECORDS = 1024;
+
+    private final String[] names = new String[RECORDS];
+    private final String[] phones = new String[RECORDS];
+    private final String[] emails = new String[RECORDS];
+    private final String[] pins = new String[RECORDS];
+    private final String[] accountNumbers = new String[RECORDS];
+    private final String[] addresses = new String[RECORDS];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        for (int i = 0; i < RECORDS; i++) {
+            // Every eighth record has one invalid field
+            boolean bad = i % 8 == 0;
+            names[i] = bad && i % 16 == 0 ? "Customer 42" : "Customer  Name " + (char) ('a' + i % 26);
+            phones[i] = String.valueOf(9_000_000_000L + i);
+            emails[i] = bad && i % 16 == 8 ? "customer" + i + "@example" : "customer" + i + "@example.com";
+            pins[i] = String.format("%04d", i % 10000);
+            accountNumbers[i] = "ACC" + (1_000_000_000L + i);
+            addresses[i] = "  " + i + " Long Street,  Springfield  ";
+        }
+    }
+
+    @Benchmark
+    public void scanners(Blackhole blackhole) {
+        int i = next++ & (RECORDS - 1);
+        blackhole.consume(ValidationUtils.isValidName(names[i]));
+        blackhole.consume(ValidationUtils.isValidPhoneNumber(phones[i]));
+        blackhole.consume(ValidationUtils.isValidEmail(emails[i]));
+        blackhole.consume(ValidationUtils.isValidPin(pins[i]));
+        blackhole.consume(ValidationUtils.isValidAccountNumber(accountNumbers[i]));
+        blackhole.consume(ValidationUtils.isValidAddress(addresses[i]));
+        blackhole.consume(ValidationUtils.sanitizeInput(names[i]));
+        blackhole.consume(ValidationUtils.sanitizeInput(addresses[i]));
+    }
+
+    @Benchmark
+    public void legacyRegex(Blackhole blackhole) {
+        int i = next++ & (RECORDS - 1);
+        blackhole.consume(Legacy.isValidName(names[i]));
+        blackhole.consume(Legacy.isValidPhoneNumber(phones[i]));
+        blackhole.consume(Legacy.isValidEmail(emails[i]));
+        blackhole.consume(Legacy.isValidPin(pins[i]));
+        blackhole.consume(Legacy.isValidAccountNumber(accountNumbers[i]));
+        blackhole.consume(Legacy.isValidAddress(addresses[i]));
+        blackhole.consume(Legacy.sanitizeInput(names[i]));
+        blackhole.consume(Legacy.sanitizeInput(addresses[i]));
+    }
+
+    /**
+     * The previous regex-based checks, unchanged.
+     */
+    static final class Legacy {
+        private static final java.util.regex.Pattern EMAIL_PATTERN =
+                java.util.regex.Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
+        private static final java.util.regex.Pattern PHONE_PATTERN =
+                java.util.regex.Pattern.compile("^[6-9]\\d{9}$");
+        private static final java.util.regex.Pattern PIN_PATTERN =
+                java.util.regex.Pattern.compile("^\\d{4}$");
+
+        static boolean isNotEmpty(String str) {
+            return str != null && !str.trim().isEmpty();
+        }
+
+        static boolean isValidEmail(String email) {
+            return isNotEmpty(email) && EMAIL_PATTERN.matcher(email.trim()).matches();
+        }
+
+        static boolean isValidPhoneNumber(String phone) {
+            return isNotEmpty(phone) && PHONE_PATTERN.matcher(phone.trim()).matches();
+        }
+
+        static boolean isValidPin(String pin) {
+            return isNotEmpty(pin) && PIN_PATTERN.matcher(pin.trim()).matches();
+        }
+
+        static boolean isValidName(String name) {
+            if (!isNotEmpty(name)) {
+                return false;
+            }
+            String trimmedName = name.trim();
+            return trimmedName.length() >= 2 && trimmedName.length() <= 50
+                    && trimmedName.matches("^[a-zA-Z\\s]+$");
+        }
+
+        static boolean isValidAccountNumber(String accountNumber) {
+            return isNotEmpty(accountNumber) && accountNumber.trim().matches("^ACC\\d+$");
+        }
+
+        static boolean isValidAddress(String address) {
+            if (!isNotEmpty(address)) {
+                return false;
+            }
+            String trimmedAddress = address.trim();
+            return trimmedAddress.length() >= 10 && trimmedAddress.length() <= 200;
+        }
+
+        static String sanitizeInput(String input) {
+            return input == null ? "" : input.trim().replaceAll("\\s+", " ");
+        }
+    }
+}
@@ -1,23 +1,32 @@
 import gui.LoginFrame;
+import services.ServiceContainer;
+import utils.Log;
 import javax.swing.SwingUtilities;
 import java.io.File;
 
 public class BankingApp {
+
+    private static final Log LOG = Log.get(BankingApp.class);
     
     public static void main(String[] args) {
-        System.out.println("Banking Management System Starting...");
+        LOG.info("Banking Management System Starting...");
         
         // Create data directory
         createDataDirectory();
         
+        // One service for every window; it loads in the background while the login screen opens
+        ServiceContainer services = new ServiceContainer("data");
+        services.installShutdownHook();
+        services.warmUp();
+        
         // Start the application - NO LOOK AND FEEL SETTING
         SwingUtilities.invokeLater(new Runnable() {
             public void run() {
                 // Create and show login window directly
-                LoginFrame loginFrame = new LoginFrame();
+                LoginFrame loginFrame = new LoginFrame(services);
                 loginFrame.setVisible(true);
                 
-                System.out.println("Banking Management System is ready!");
+                LOG.info("Banking Management System is ready!");
             }
         });
     }
@@ -26,8 +35,7 @@ public class BankingApp {
         File dataDir = new File("data");
         if (!dataDir.exists()) {
             boolean created = dataDir.mkdirs();
-            System.out.println("Data directory created: " + created);
-            System.out.println("Data directory path: " + dataDir.getAbsolutePath());
+            LOG.info("Data directory created: {} ({})", created, dataDir.getAbsolutePath());
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,189 @@
+package gui;
+
+import services.AccountService;
+import services.ServiceContainer;
+import utils.Log;
+
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs AccountService calls for the Swing frames on a background thread and
+ * delivers the outcome back on the Event Dispatch Thread.
+ *
+ * Each frame has its own instance, so it can cancel its own calls, but all
+ * of them run one at a time, in submission order, on one worker thread
+ * shared by the whole application, as is the service they call. A frame's
+ * deposit and the refresh that follows it therefore cannot overtake each
+ * other. A call made while the service is still warming up waits for it on
+ * the worker.
+ *
+ * Callbacks are attached to the returned {@link Task} and must be attached
+ * on the EDT in the same event that submitted the call; since delivery is
+ * queued behind that event, none can be missed.
+ */
+public class AsyncAccountService {
+
+    private static final Log LOG = Log.get(AsyncAccountService.class);
+
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "account-service");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ServiceContainer services;
+    // EDT only
+    private final Set<Task<?>> pending = new HashSet<>();
+
+    public AsyncAccountService(ServiceContainer services) {
+        this.services = services;
+        services.warmUp();
+    }
+
+    /**
+     * Runs {@code work} on the worker thread.
+     *
+     * @param operation name shown by the busy indicator and the latency readout
+     * @param busy      indicator to show while the call is pending; may be null
+     */
+    public <T> Task<T> call(String operation, BusyIndicator busy, Function<AccountService, T> work) {
+        Task<T> task = new Task<>(this, operation, busy);
+        CompletableFuture.supplyAsync(() -> task.isCancelled() ? null : work.apply(services.getAccountService()), WORKER)
+                .whenComplete(task::deliver);
+        return task;
+    }
+
+    /**
+     * Like {@link #call}, for service methods that are asynchronous themselves
+     * (such as {@link AccountService#transferAsync}). The task completes when
+     * the returned stage does, not when the worker thread is done with it.
+     */
+    public <T> Task<T> callAsync(String operation, BusyIndicator busy,
+                                 Function<AccountService, ? extends CompletionStage<T>> work) {
+        Task<T> task = new Task<>(this, operation, busy);
+        CompletableFuture.supplyAsync(() -> task.isCancelled()
+                ? CompletableFuture.<T>completedFuture(null) : work.apply(services.getAccountService()), WORKER)
+                .thenCompose(stage -> stage)
+                .whenComplete(task::deliver);
+        return task;
+    }
+
+    /**
+     * Cancels every task this instance still has pending. Frames call this
+     * when they are disposed so no callback touches a closed window. EDT only.
+     */
+    public void cancelPending() {
+        for (Task<?> task : new ArrayList<>(pending)) {
+            task.cancel();
+        }
+    }
+
+    /**
+     * A pending service call. All methods must be called on the EDT.
+     */
+    public static final class Task<T> {
+        private final AsyncAccountService owner;
+        private final String operation;
+        private final BusyIndicator busy;
+        private final long startNanos = System.nanoTime();
+        private Consumer<? super T> onSuccess = result -> { };
+        private Consumer<Throwable> onFailure;
+        private volatile boolean cancelled;
+        private boolean done;
+        private long elapsedMillis = -1;
+
+        private Task(AsyncAccountService owner, String operation, BusyIndicator busy) {
+            this.owner = owner;
+            this.operation = operation;
+            this.busy = busy;
+            if (busy != null) {
+                busy.start(operation);
+            }
+            owner.pending.add(this);
+        }
+
+        public Task<T> onSuccess(Consumer<? super T> onSuccess) {
+            this.onSuccess = onSuccess;
+            return this;
+        }
+
+        /**
+         * Without a failure callback the error is logged and shown
+         * by the busy indicator.
+         */
+        public Task<T> onFailure(Consumer<Throwable> onFailure) {
+            this.onFailure = onFailure;
+            return this;
+        }
+
+        /**
+         * Drops the callbacks and releases the busy indicator at once. A call
+         * that has not started yet is skipped; one already running (a deposit
+         * half-way through its commit, say) is allowed to finish, since
+         * stopping it part-way would not undo it.
+         */
+        public void cancel() {
+            if (done || cancelled) {
+                return;
+            }
+            cancelled = true;
+            finish();
+            if (busy != null) {
+                busy.cancelled(operation);
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public boolean isDone() {
+            return done;
+        }
+
+        /**
+         * Time from submission to completion or cancellation; -1 while pending.
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        // Called on whichever thread completed the work
+        private void deliver(T result, Throwable error) {
+            SwingUtilities.invokeLater(() -> {
+                if (cancelled) {
+                    return;
+                }
+                finish();
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                if (busy != null) {
+                    busy.finish(operation, elapsedMillis, cause == null);
+                }
+                if (cause == null) {
+                    onSuccess.accept(result);
+                } else if (onFailure != null) {
+                    onFailure.accept(cause);
+                } else {
+                    LOG.error("{} failed", operation, cause);
+                }
+            });
+        }
+
+        private void finish() {
+            done = true;
+            owner.pending.remove(this);
+            elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package gui;
+
+import javax.swing.JComponent;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import java.awt.Color;
+import java.awt.Cursor;
+import java.awt.Font;
+
+/**
+ * Shows that a frame is waiting for the service: disables its controls,
+ * switches to the wait cursor and reports each call's latency in a small
+ * status label. Calls may overlap; the frame stays busy until the last one
+ * finishes. EDT only.
+ */
+public class BusyIndicator {
+
+    private static final Color IDLE_COLOR = new Color(108, 117, 125);
+    private static final Color ERROR_COLOR = new Color(220, 53, 69);
+
+    private final JFrame frame;
+    private final JLabel latencyLabel;
+    private final JComponent[] controls;
+    private int pending;
+
+    public BusyIndicator(JFrame frame, JComponent... controls) {
+        this.frame = frame;
+        this.controls = controls;
+        this.latencyLabel = new JLabel(" ");
+        latencyLabel.setFont(new Font("Arial", Font.PLAIN, 11));
+        latencyLabel.setForeground(IDLE_COLOR);
+    }
+
+    /**
+     * Label the frame should place somewhere unobtrusive, e.g. a footer.
+     */
+    public JLabel getLatencyLabel() {
+        return latencyLabel;
+    }
+
+    public boolean isBusy() {
+        return pending > 0;
+    }
+
+    void start(String operation) {
+        if (pending++ == 0) {
+            setControlsEnabled(false);
+            frame.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        }
+        latencyLabel.setForeground(IDLE_COLOR);
+        latencyLabel.setText(operation + "...");
+    }
+
+    void finish(String operation, long elapsedMillis, boolean succeeded) {
+        latencyLabel.setForeground(succeeded ? IDLE_COLOR : ERROR_COLOR);
+        latencyLabel.setText(operation + (succeeded ? "" : " failed") + " in " + elapsedMillis + " ms");
+        release();
+    }
+
+    void cancelled(String operation) {
+        latencyLabel.setForeground(IDLE_COLOR);
+        latencyLabel.setText(operation + " cancelled");
+        release();
+    }
+
+    private void release() {
+        if (pending > 0 && --pending == 0) {
+            setControlsEnabled(true);
+            frame.setCursor(Cursor.getDefaultCursor());
+        }
+    }
+
+    private void setControlsEnabled(boolean enabled) {
+        for (JComponent control : controls) {
+            control.setEnabled(enabled);
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package gui;
 
 import models.Account;
-import services.AccountService;
+import models.Money;
+import services.ServiceContainer;
+import utils.Log;
 import utils.ValidationUtils;
 
 import javax.swing.*;
@@ -10,6 +12,8 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
 public class CreateAccountFrame extends JFrame implements ActionListener {
+
+    private static final Log LOG = Log.get(CreateAccountFrame.class);
     
     private JTextField nameField;
     private JTextField phoneField;
@@ -23,7 +27,8 @@ public class CreateAccountFrame extends JFrame implements ActionListener {
     private JButton cancelButton;
     private JLabel statusLabel;
     
-    private AccountService accountService;
+    private AsyncAccountService accountService;
+    private BusyIndicator busyIndicator;
     private LoginFrame parentFrame;
     
     private static final Color PRIMARY_COLOR = new Color(52, 58, 64);
@@ -31,9 +36,9 @@ public class CreateAccountFrame extends JFrame implements ActionListener {
     private static final Color DANGER_COLOR = new Color(220, 53, 69);
     private static final Color INFO_COLOR = new Color(23, 162, 184);
     
-    public CreateAccountFrame(LoginFrame parent) {
+    public CreateAccountFrame(LoginFrame parent, ServiceContainer services) {
         this.parentFrame = parent;
-        this.accountService = new AccountService();
+        this.accountService = new AsyncAccountService(services);
         
         initializeComponents();
         setupLayout();
@@ -65,6 +70,9 @@ public class CreateAccountFrame extends JFrame implements ActionListener {
         statusLabel = new JLabel(" ");
         statusLabel.setFont(new Font("Arial", Font.ITALIC, 12));
         statusLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        
+        busyIndicator = new BusyIndicator(this, createButton);
+        busyIndicator.getLatencyLabel().setHorizontalAlignment(SwingConstants.CENTER);
     }
     
     private void styleButton(JButton button, Color backgroundColor) {
@@ -173,6 +181,10 @@ public class CreateAccountFrame extends JFrame implements ActionListener {
         
         gbc.gridy = row;
         mainPanel.add(buttonPanel, gbc);
+        row++;
+        
+        gbc.gridy = row;
+        mainPanel.add(busyIndicator.getLatencyLabel(), gbc);
         
         add(headerPanel, BorderLayout.NORTH);
         add(new JScrollPane(mainPanel), BorderLayout.CENTER);
@@ -243,7 +255,7 @@ public class CreateAccountFrame extends JFrame implements ActionListener {
             return;
         }
         
-        double deposit = Double.parseDouble(depositStr);
+        Money deposit = Money.parse(depositStr);
         if (!ValidationUtils.isValidMinimumDeposit(deposit, accountType.name())) {
             showStatus("Minimum deposit: ₹1000 (Savings), ₹5000 (Current), ₹10000 (FD)", DANGER_COLOR);
             return;
@@ -260,30 +272,31 @@ public class CreateAccountFrame extends JFrame implements ActionListener {
         }
         
         // Create account
-        try {
-            Account account = accountService.createAccount(name, phone, email, address, accountType, deposit, pin);
-            System.out.println("DEBUG: New account created: " + account.getAccountNumber());
-            System.out.println("DEBUG: New account PIN: " + account.getPin());
+        showStatus("Creating account...", INFO_COLOR);
+        accountService.call("Account creation", busyIndicator,
+                service -> service.createAccount(name, phone, email, address, accountType, deposit, pin))
+            .onSuccess(this::accountCreated)
+            .onFailure(ex -> showStatus("Error creating account: " + ex.getMessage(), DANGER_COLOR));
+    }
+    
+    private void accountCreated(Account account) {
+        LOG.debug("New account created: {}", account.getAccountNumber());
 
 
-            showStatus("Account created successfully! Account Number: " + account.getAccountNumber(), SUCCESS_COLOR);
-            
-            // Show success dialog
-            JOptionPane.showMessageDialog(this, 
-                "Account Created Successfully!\n" +
-                "Account Number: " + account.getAccountNumber() + "\n" +
-                "Please remember your account number for login.",
-                "Success",
-                JOptionPane.INFORMATION_MESSAGE);
-            
-            // Return to login
-            this.dispose();
-            parentFrame.showAccountCreatedMessage(account.getAccountNumber());
-            parentFrame.setVisible(true);
-            
-        } catch (Exception ex) {
-            showStatus("Error creating account: " + ex.getMessage(), DANGER_COLOR);
-        }
+        showStatus("Account created successfully! Account Number: " + account.getAccountNumber(), SUCCESS_COLOR);
+        
+        // Show success dialog
+        JOptionPane.showMessageDialog(this, 
+            "Account Created Successfully!\n" +
+            "Account Number: " + account.getAccountNumber() + "\n" +
+            "Please remember your account number for login.",
+            "Success",
+            JOptionPane.INFORMATION_MESSAGE);
+        
+        // Return to login
+        close();
+        parentFrame.showAccountCreatedMessage(account.getAccountNumber());
+        parentFrame.setVisible(true);
     }
     
     private void handleCancel() {
@@ -293,12 +306,17 @@ public class CreateAccountFrame extends JFrame implements ActionListener {
             JOptionPane.YES_NO_OPTION);
         
         if (result == JOptionPane.YES_OPTION) {
-            this.dispose();
+            close();
             parentFrame.refresh();
             parentFrame.setVisible(true);
         }
     }
     
+    private void close() {
+        accountService.cancelPending();
+        this.dispose();
+    }
+    
     private void showStatus(String message, Color color) {
         statusLabel.setText(message);
         statusLabel.setForeground(color);
@@ -1,7 +1,7 @@
 package gui;
 
 import models.Account;
-import services.AccountService;
+import services.ServiceContainer;
 import utils.ValidationUtils;
 
 import javax.swing.*;
@@ -18,15 +18,19 @@ public class LoginFrame extends JFrame implements ActionListener {
     private JButton exitButton;
     private JLabel statusLabel;
     
-    private AccountService accountService;
+    private ServiceContainer services;
+    private AsyncAccountService accountService;
+    private BusyIndicator busyIndicator;
+    private AsyncAccountService.Task<Account> loginTask;
     
     private static final Color PRIMARY_COLOR = new Color(52, 58, 64);
     private static final Color SUCCESS_COLOR = new Color(40, 167, 69);
     private static final Color DANGER_COLOR = new Color(220, 53, 69);
     private static final Color INFO_COLOR = new Color(23, 162, 184);
     
-    public LoginFrame() {
-        accountService = new AccountService();
+    public LoginFrame(ServiceContainer services) {
+        this.services = services;
+        accountService = new AsyncAccountService(services);
         initializeComponents();
         setupLayout();
         setupEventHandlers();
@@ -51,6 +55,10 @@ public class LoginFrame extends JFrame implements ActionListener {
         statusLabel = new JLabel(" ");
         statusLabel.setFont(new Font("Arial", Font.ITALIC, 12));
         statusLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        
+        // The login button stays enabled so it can cancel a slow login
+        busyIndicator = new BusyIndicator(this, accountField, pinField, createAccountButton);
+        busyIndicator.getLatencyLabel().setHorizontalAlignment(SwingConstants.CENTER);
     }
     
     private void styleButton(JButton button, Color backgroundColor) {
@@ -105,6 +113,9 @@ public class LoginFrame extends JFrame implements ActionListener {
         gbc.gridy = 5;
         mainPanel.add(exitButton, gbc);
         
+        gbc.gridy = 6;
+        mainPanel.add(busyIndicator.getLatencyLabel(), gbc);
+        
         add(headerPanel, BorderLayout.NORTH);
         add(mainPanel, BorderLayout.CENTER);
     }
@@ -135,6 +146,13 @@ public class LoginFrame extends JFrame implements ActionListener {
     }
     
     private void handleLogin() {
+        if (loginTask != null) {
+            loginTask.cancel();
+            endLogin();
+            showStatus("Login cancelled", INFO_COLOR);
+            return;
+        }
+        
         String accountNumber = accountField.getText().trim();
         String pin = new String(pinField.getPassword()).trim();
         
@@ -153,24 +171,41 @@ public class LoginFrame extends JFrame implements ActionListener {
             return;
         }
         
-        Account account = accountService.authenticateUser(accountNumber, pin);
-        if (account != null) {
-            showStatus("Login successful!", SUCCESS_COLOR);
-            openMainFrame(account);
-        } else {
-            showStatus("Invalid account number or PIN", DANGER_COLOR);
-            pinField.setText("");
-        }
+        showStatus("Checking your details...", INFO_COLOR);
+        loginButton.setText("Cancel");
+        loginTask = accountService.call("Login", busyIndicator, service -> service.authenticateUser(accountNumber, pin))
+            .onSuccess(account -> {
+                endLogin();
+                if (account != null) {
+                    showStatus("Login successful!", SUCCESS_COLOR);
+                    openMainFrame(account);
+                } else {
+                    showStatus("Invalid account number or PIN", DANGER_COLOR);
+                    pinField.setText("");
+                }
+            })
+            .onFailure(error -> {
+                endLogin();
+                // IllegalStateException: the service is busy, the PIN was not checked
+                showStatus(error instanceof IllegalStateException ? error.getMessage()
+                        : "Login failed, please try again", DANGER_COLOR);
+            });
+    }
+    
+    private void endLogin() {
+        loginTask = null;
+        loginButton.setText("Login");
     }
     
     private void openCreateAccountFrame() {
         this.setVisible(false);
-        new CreateAccountFrame(this).setVisible(true);
+        new CreateAccountFrame(this, services).setVisible(true);
     }
     
     private void openMainFrame(Account account) {
+        accountService.cancelPending();
         this.dispose();
-        new MainFrame(account).setVisible(true);
+        new MainFrame(account, services).setVisible(true);
     }
     
     private void showStatus(String message, Color color) {
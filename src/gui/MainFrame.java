@@ -1,7 +1,8 @@
 package gui;
 
 import models.Account;
-import services.AccountService;
+import models.Money;
+import services.ServiceContainer;
 import utils.ValidationUtils;
 
 import javax.swing.*;
@@ -12,7 +13,9 @@ import java.awt.event.ActionListener;
 public class MainFrame extends JFrame implements ActionListener {
     
     private Account currentAccount;
-    private AccountService accountService;
+    private ServiceContainer services;
+    private AsyncAccountService accountService;
+    private BusyIndicator busyIndicator;
     private JLabel balanceLabel;
     private JLabel accountInfoLabel;
     
@@ -29,9 +32,10 @@ public class MainFrame extends JFrame implements ActionListener {
     private static final Color INFO_COLOR = new Color(23, 162, 184);
     private static final Color WARNING_COLOR = new Color(255, 193, 7);
     
-    public MainFrame(Account account) {
+    public MainFrame(Account account, ServiceContainer services) {
         this.currentAccount = account;
-        this.accountService = new AccountService();
+        this.services = services;
+        this.accountService = new AsyncAccountService(services);
         
         initializeComponents();
         setupLayout();
@@ -64,6 +68,11 @@ public class MainFrame extends JFrame implements ActionListener {
         styleButton(balanceButton, new Color(108, 117, 125));
         styleButton(changePinButton, new Color(108, 117, 125));
         styleButton(logoutButton, DANGER_COLOR);
+        
+        // Logout stays enabled; it cancels whatever is still pending
+        busyIndicator = new BusyIndicator(this, depositButton, withdrawButton, transferButton,
+            balanceButton, changePinButton);
+        busyIndicator.getLatencyLabel().setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
     }
     
     private void styleButton(JButton button, Color backgroundColor) {
@@ -117,6 +126,7 @@ public class MainFrame extends JFrame implements ActionListener {
         
         add(headerPanel, BorderLayout.NORTH);
         add(contentPanel, BorderLayout.CENTER);
+        add(busyIndicator.getLatencyLabel(), BorderLayout.SOUTH);
     }
     
     private void setupEventHandlers() {
@@ -164,16 +174,21 @@ public class MainFrame extends JFrame implements ActionListener {
             return;
         }
         
-        double amount = Double.parseDouble(amountStr.trim());
-        
-        if (accountService.deposit(currentAccount.getAccountNumber(), amount, "Cash deposit via ATM")) {
-            refreshAccountData();
-            JOptionPane.showMessageDialog(this, 
-                "Successfully deposited ₹" + ValidationUtils.formatAmount(amount), 
-                "Success", JOptionPane.INFORMATION_MESSAGE);
-        } else {
-            JOptionPane.showMessageDialog(this, "Deposit failed!", "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        Money amount = Money.parse(amountStr);
+        
+        String accountNumber = currentAccount.getAccountNumber();
+        accountService.call("Deposit", busyIndicator,
+                service -> service.deposit(accountNumber, amount, "Cash deposit via ATM"))
+            .onSuccess(deposited -> {
+                if (deposited) {
+                    refreshAccountData(() -> JOptionPane.showMessageDialog(this, 
+                        "Successfully deposited ₹" + ValidationUtils.formatAmount(amount), 
+                        "Success", JOptionPane.INFORMATION_MESSAGE));
+                } else {
+                    JOptionPane.showMessageDialog(this, "Deposit failed!", "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            })
+            .onFailure(error -> showFailure("Deposit failed!"));
     }
     
     private void handleWithdraw() {
@@ -187,7 +202,7 @@ public class MainFrame extends JFrame implements ActionListener {
             return;
         }
         
-        double amount = Double.parseDouble(amountStr.trim());
+        Money amount = Money.parse(amountStr);
         
         if (!ValidationUtils.canWithdraw(amount, currentAccount.getBalance())) {
             JOptionPane.showMessageDialog(this, 
@@ -196,14 +211,19 @@ public class MainFrame extends JFrame implements ActionListener {
             return;
         }
         
-        if (accountService.withdraw(currentAccount.getAccountNumber(), amount, "Cash withdrawal via ATM")) {
-            refreshAccountData();
-            JOptionPane.showMessageDialog(this, 
-                "Successfully withdrawn ₹" + ValidationUtils.formatAmount(amount), 
-                "Success", JOptionPane.INFORMATION_MESSAGE);
-        } else {
-            JOptionPane.showMessageDialog(this, "Withdrawal failed!", "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        String accountNumber = currentAccount.getAccountNumber();
+        accountService.call("Withdrawal", busyIndicator,
+                service -> service.withdraw(accountNumber, amount, "Cash withdrawal via ATM"))
+            .onSuccess(withdrawn -> {
+                if (withdrawn) {
+                    refreshAccountData(() -> JOptionPane.showMessageDialog(this, 
+                        "Successfully withdrawn ₹" + ValidationUtils.formatAmount(amount), 
+                        "Success", JOptionPane.INFORMATION_MESSAGE));
+                } else {
+                    JOptionPane.showMessageDialog(this, "Withdrawal failed!", "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            })
+            .onFailure(error -> showFailure("Withdrawal failed!"));
     }
     
     private void handleTransfer() {
@@ -239,7 +259,7 @@ public class MainFrame extends JFrame implements ActionListener {
             return;
         }
         
-        double amount = Double.parseDouble(amountStr);
+        Money amount = Money.parse(amountStr);
         
         if (!ValidationUtils.canWithdraw(amount, currentAccount.getBalance())) {
             JOptionPane.showMessageDialog(this, 
@@ -248,24 +268,34 @@ public class MainFrame extends JFrame implements ActionListener {
             return;
         }
         
-        if (accountService.transfer(currentAccount.getAccountNumber(), toAccount, amount, "Online transfer")) {
-            refreshAccountData();
-            JOptionPane.showMessageDialog(this, 
-                "Successfully transferred ₹" + ValidationUtils.formatAmount(amount) + " to " + toAccount, 
-                "Success", JOptionPane.INFORMATION_MESSAGE);
-        } else {
-            JOptionPane.showMessageDialog(this, "Transfer failed! Check destination account number.", 
-                "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        String accountNumber = currentAccount.getAccountNumber();
+        accountService.callAsync("Transfer", busyIndicator,
+                service -> service.transferAsync(accountNumber, toAccount, amount, "Online transfer"))
+            .onSuccess(transfer -> {
+                if (transfer.isSuccessful()) {
+                    refreshAccountData(() -> JOptionPane.showMessageDialog(this, 
+                        "Successfully transferred ₹" + ValidationUtils.formatAmount(amount) + " to " + toAccount, 
+                        "Success", JOptionPane.INFORMATION_MESSAGE));
+                } else {
+                    JOptionPane.showMessageDialog(this, "Transfer failed! " + transfer.getMessage(), 
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            })
+            .onFailure(error -> showFailure("Transfer failed!"));
     }
     
     private void handleCheckBalance() {
-        refreshAccountData();
-        JOptionPane.showMessageDialog(this, 
-            "Current Balance: ₹" + ValidationUtils.formatAmount(currentAccount.getBalance()) + "\n" +
-            "Account Type: " + currentAccount.getAccountType().getDisplayName() + "\n" +
-            "Account Status: " + (currentAccount.isActive() ? "Active" : "Inactive"),
-            "Balance Information", JOptionPane.INFORMATION_MESSAGE);
+        String accountNumber = currentAccount.getAccountNumber();
+        accountService.call("Balance check", busyIndicator, service -> service.getAccountByNumber(accountNumber))
+            .onSuccess(account -> {
+                showAccount(account);
+                JOptionPane.showMessageDialog(this, 
+                    "Current Balance: ₹" + ValidationUtils.formatAmount(currentAccount.getBalance()) + "\n" +
+                    "Account Type: " + currentAccount.getAccountType().getDisplayName() + "\n" +
+                    "Account Status: " + (currentAccount.isActive() ? "Active" : "Inactive"),
+                    "Balance Information", JOptionPane.INFORMATION_MESSAGE);
+            })
+            .onFailure(error -> showFailure("Could not load your balance."));
     }
     
     private void handleChangePin() {
@@ -296,12 +326,17 @@ public class MainFrame extends JFrame implements ActionListener {
             return;
         }
         
-        if (accountService.changePin(currentAccount.getAccountNumber(), oldPin, newPin)) {
-            JOptionPane.showMessageDialog(this, "PIN changed successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-        } else {
-            JOptionPane.showMessageDialog(this, "PIN change failed! Check your current PIN.", 
-                "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        String accountNumber = currentAccount.getAccountNumber();
+        accountService.call("PIN change", busyIndicator, service -> service.changePin(accountNumber, oldPin, newPin))
+            .onSuccess(changed -> {
+                if (changed) {
+                    JOptionPane.showMessageDialog(this, "PIN changed successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                } else {
+                    JOptionPane.showMessageDialog(this, "PIN change failed! Check your current PIN.", 
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            })
+            .onFailure(error -> showFailure("PIN change failed!"));
     }
     
     private void handleLogout() {
@@ -311,14 +346,35 @@ public class MainFrame extends JFrame implements ActionListener {
             JOptionPane.YES_NO_OPTION);
         
         if (result == JOptionPane.YES_OPTION) {
+            accountService.cancelPending();
             this.dispose();
-            new LoginFrame().setVisible(true);
+            new LoginFrame(services).setVisible(true);
         }
     }
     
-    private void refreshAccountData() {
-        currentAccount = accountService.getAccountByNumber(currentAccount.getAccountNumber());
-        updateAccountInfo();
+    /**
+     * Reloads the account on the service thread, then runs {@code then} on the EDT.
+     * Follows another call, so it leaves that call's latency on display.
+     */
+    private void refreshAccountData(Runnable then) {
+        String accountNumber = currentAccount.getAccountNumber();
+        accountService.call("Refresh", null, service -> service.getAccountByNumber(accountNumber))
+            .onSuccess(account -> {
+                showAccount(account);
+                then.run();
+            })
+            .onFailure(error -> showFailure("Could not refresh account data."));
+    }
+    
+    private void showAccount(Account account) {
+        if (account != null) {
+            currentAccount = account;
+            updateAccountInfo();
+        }
+    }
+    
+    private void showFailure(String message) {
+        JOptionPane.showMessageDialog(this, message + " Please try again.", "Error", JOptionPane.ERROR_MESSAGE);
     }
     
     private void updateAccountInfo() {
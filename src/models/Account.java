@@ -1,7 +1,11 @@
 package models;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import utils.IdGenerators;
 
 public class Account implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -12,10 +16,18 @@ public class Account implements Serializable {
     private String email;
     private String address;
     private AccountType accountType;
-    private double balance;
+    private volatile long balanceMinor; // paise
+    private double balance; // only set in snapshots written before Money was introduced
     private Date dateCreated;
-    private String pin;
+    private String pin; // plaintext, only in accounts not yet migrated to pinHash
+    private String pinHash; // see utils.PinHasher
     private boolean isActive;
+    // 1 while the account has changes not yet in a snapshot; never serialized,
+    // so an account read back from disk starts clean
+    private transient volatile int dirty;
+    
+    private static final AtomicIntegerFieldUpdater<Account> DIRTY =
+            AtomicIntegerFieldUpdater.newUpdater(Account.class, "dirty");
     
     public enum AccountType {
         SAVINGS("Savings Account"),
@@ -42,24 +54,32 @@ public class Account implements Serializable {
     public Account() {
         this.dateCreated = new Date();
         this.isActive = true;
+        this.dirty = 1;
     }
     
     // Parameterized constructor
     public Account(String customerName, String phoneNumber, String email, 
-                   String address, AccountType accountType, double initialDeposit) {
-        this.accountNumber = generateAccountNumber();
+                   String address, AccountType accountType, Money initialDeposit) {
+        this(generateAccountNumber(), customerName, phoneNumber, email, address, accountType, initialDeposit);
+    }
+    
+    // For callers that allocate account numbers themselves, e.g. in blocks
+    public Account(String accountNumber, String customerName, String phoneNumber, String email, 
+                   String address, AccountType accountType, Money initialDeposit) {
+        this.accountNumber = accountNumber;
         this.customerName = customerName;
         this.phoneNumber = phoneNumber;
         this.email = email;
         this.address = address;
         this.accountType = accountType;
-        this.balance = initialDeposit;
+        this.balanceMinor = initialDeposit.getMinorUnits();
         this.dateCreated = new Date();
         this.isActive = true;
+        this.dirty = 1;
     }
     
-    private String generateAccountNumber() {
-        return "ACC" + System.currentTimeMillis();
+    private static String generateAccountNumber() {
+        return "ACC" + IdGenerators.accounts().nextId();
     }
     
     // Getters and Setters
@@ -69,6 +89,7 @@ public class Account implements Serializable {
     
     public void setAccountNumber(String accountNumber) {
         this.accountNumber = accountNumber;
+        dirty = 1;
     }
     
     public String getCustomerName() {
@@ -77,6 +98,7 @@ public class Account implements Serializable {
     
     public void setCustomerName(String customerName) {
         this.customerName = customerName;
+        dirty = 1;
     }
     
     public String getPhoneNumber() {
@@ -85,6 +107,7 @@ public class Account implements Serializable {
     
     public void setPhoneNumber(String phoneNumber) {
         this.phoneNumber = phoneNumber;
+        dirty = 1;
     }
     
     public String getEmail() {
@@ -93,6 +116,7 @@ public class Account implements Serializable {
     
     public void setEmail(String email) {
         this.email = email;
+        dirty = 1;
     }
     
     public String getAddress() {
@@ -101,6 +125,7 @@ public class Account implements Serializable {
     
     public void setAddress(String address) {
         this.address = address;
+        dirty = 1;
     }
     
     public AccountType getAccountType() {
@@ -109,14 +134,25 @@ public class Account implements Serializable {
     
     public void setAccountType(AccountType accountType) {
         this.accountType = accountType;
+        dirty = 1;
+    }
+    
+    public Money getBalance() {
+        return Money.ofMinor(balanceMinor);
+    }
+    
+    public void setBalance(Money balance) {
+        this.balanceMinor = balance.getMinorUnits();
+        dirty = 1;
     }
     
-    public double getBalance() {
-        return balance;
+    public long getBalanceMinor() {
+        return balanceMinor;
     }
     
-    public void setBalance(double balance) {
-        this.balance = balance;
+    public void setBalanceMinor(long balanceMinor) {
+        this.balanceMinor = balanceMinor;
+        dirty = 1;
     }
     
     public Date getDateCreated() {
@@ -125,6 +161,7 @@ public class Account implements Serializable {
     
     public void setDateCreated(Date dateCreated) {
         this.dateCreated = dateCreated;
+        dirty = 1;
     }
     
     public String getPin() {
@@ -133,6 +170,20 @@ public class Account implements Serializable {
     
     public void setPin(String pin) {
         this.pin = pin;
+        dirty = 1;
+    }
+    
+    public String getPinHash() {
+        return pinHash;
+    }
+    
+    /**
+     * Replaces the credential with a hash and drops any plaintext PIN.
+     */
+    public void setPinHash(String pinHash) {
+        this.pinHash = pinHash;
+        this.pin = null;
+        dirty = 1;
     }
     
     public boolean isActive() {
@@ -141,6 +192,25 @@ public class Account implements Serializable {
     
     public void setActive(boolean active) {
         isActive = active;
+        dirty = 1;
+    }
+    
+    /**
+     * Whether the account changed since it was loaded or last marked clean.
+     * Every setter marks it, so a checkpoint can write only the accounts
+     * that changed.
+     */
+    public boolean isDirty() {
+        return dirty != 0;
+    }
+    
+    /**
+     * Clears the dirty mark and returns whether it was set. Call it before
+     * reading the account for a snapshot: a change made meanwhile marks the
+     * account again, so it is picked up by the next snapshot.
+     */
+    public boolean markClean() {
+        return DIRTY.getAndSet(this, 0) != 0;
     }
     
     @Override
@@ -149,9 +219,18 @@ public class Account implements Serializable {
                 "accountNumber='" + accountNumber + '\'' +
                 ", customerName='" + customerName + '\'' +
                 ", accountType=" + accountType +
-                ", balance=" + balance +
+                ", balance=" + Money.format(balanceMinor) +
                 ", dateCreated=" + dateCreated +
                 ", isActive=" + isActive +
                 '}';
     }
+    
+    // Converts the double balance of older snapshots to minor units
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (balance != 0.0) {
+            balanceMinor = Money.toMinor(balance);
+            balance = 0.0;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,209 @@
+package models;
+
+import java.io.Serializable;
+import java.util.Currency;
+
+/**
+ * Immutable amount of money stored as a long count of minor units
+ * (paise for INR), so arithmetic is exact and never drifts like double.
+ *
+ * Services work with the raw minor units on hot paths; Money is the value
+ * type used at API boundaries and for display.
+ */
+public final class Money implements Comparable<Money>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final Currency DEFAULT_CURRENCY = Currency.getInstance("INR");
+    public static final Money ZERO = new Money(0, DEFAULT_CURRENCY);
+
+    private static final int SCALE = 100;
+
+    private final long minorUnits;
+    private final Currency currency;
+
+    private Money(long minorUnits, Currency currency) {
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+    }
+
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits, DEFAULT_CURRENCY);
+    }
+
+    public static Money ofMinor(long minorUnits, Currency currency) {
+        return new Money(minorUnits, currency);
+    }
+
+    public static Money ofMajor(long majorUnits) {
+        return ofMinor(Math.multiplyExact(majorUnits, SCALE));
+    }
+
+    /**
+     * Converts a legacy double amount, rounding to the nearest minor unit.
+     */
+    public static Money fromDouble(double amount) {
+        return ofMinor(toMinor(amount));
+    }
+
+    public static long toMinor(double amount) {
+        return Math.round(amount * SCALE);
+    }
+
+    /**
+     * Parses a plain decimal amount such as "1500", "1500.5" or "1500.50".
+     * At most two decimal places are allowed.
+     * @throws NumberFormatException if the text is not such an amount
+     */
+    public static Money parse(String text) {
+        return ofMinor(parseMinor(text));
+    }
+
+    /**
+     * Parses a plain decimal amount straight to minor units without allocating.
+     * @throws NumberFormatException if the text is not a valid amount
+     */
+    public static long parseMinor(CharSequence text) {
+        if (text == null) {
+            throw new NumberFormatException("null amount");
+        }
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ') start++;
+        while (end > start && text.charAt(end - 1) <= ' ') end--;
+
+        boolean negative = false;
+        if (start < end && (text.charAt(start) == '-' || text.charAt(start) == '+')) {
+            negative = text.charAt(start) == '-';
+            start++;
+        }
+
+        long units = 0;
+        int digits = 0;
+        int i = start;
+        for (; i < end && text.charAt(i) != '.'; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Invalid amount: " + text);
+            }
+            units = Math.addExact(Math.multiplyExact(units, 10), c - '0');
+            digits++;
+        }
+
+        long fraction = 0;
+        int fractionDigits = 0;
+        if (i < end) {
+            for (i++; i < end; i++) {
+                char c = text.charAt(i);
+                if (c < '0' || c > '9' || fractionDigits == 2) {
+                    throw new NumberFormatException("Invalid amount: " + text);
+                }
+                fraction = fraction * 10 + (c - '0');
+                fractionDigits++;
+            }
+        }
+        if (digits + fractionDigits == 0) {
+            throw new NumberFormatException("Invalid amount: " + text);
+        }
+        if (fractionDigits == 1) {
+            fraction *= 10;
+        }
+
+        long minor = Math.addExact(Math.multiplyExact(units, SCALE), fraction);
+        return negative ? -minor : minor;
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public Money plus(Money other) {
+        checkCurrency(other);
+        return ofMinor(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        checkCurrency(other);
+        return ofMinor(Math.subtractExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public boolean isPositive() {
+        return minorUnits > 0;
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    public boolean isZero() {
+        return minorUnits == 0;
+    }
+
+    public double toDouble() {
+        return minorUnits / (double) SCALE;
+    }
+
+    /**
+     * Appends the amount as "1234.50" without going through String.format.
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        return appendAmount(sb, minorUnits);
+    }
+
+    /**
+     * Appends a minor-unit amount as a plain two-decimal number.
+     */
+    public static StringBuilder appendAmount(StringBuilder sb, long minorUnits) {
+        if (minorUnits < 0) {
+            sb.append('-');
+            if (minorUnits == Long.MIN_VALUE) {
+                // Cannot be negated; emit its digits directly
+                return sb.append("92233720368547758.08");
+            }
+            minorUnits = -minorUnits;
+        }
+        long fraction = minorUnits % SCALE;
+        sb.append(minorUnits / SCALE).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction);
+    }
+
+    public static String format(long minorUnits) {
+        return appendAmount(new StringBuilder(24), minorUnits).toString();
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        checkCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Money)) return false;
+        Money other = (Money) o;
+        return minorUnits == other.minorUnits && currency.equals(other.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits) * 31 + currency.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return format(minorUnits);
+    }
+
+    private void checkCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " vs " + other.currency);
+        }
+    }
+}
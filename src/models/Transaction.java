@@ -1,7 +1,10 @@
 package models;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Date;
+import utils.IdGenerators;
 
 public class Transaction implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -9,6 +12,9 @@ public class Transaction implements Serializable {
     private String transactionId;
     private String accountNumber;
     private TransactionType type;
+    private long amountMinor; // paise
+    private long balanceAfterMinor;
+    // Only set in records serialized before Money was introduced
     private double amount;
     private double balanceAfter;
     private Date timestamp;
@@ -47,19 +53,30 @@ public class Transaction implements Serializable {
     
     // Parameterized constructor
     public Transaction(String accountNumber, TransactionType type, 
-                      double amount, double balanceAfter, String description) {
-        this.transactionId = generateTransactionId();
+                      Money amount, Money balanceAfter, String description) {
+        this(accountNumber, type, amount.getMinorUnits(), balanceAfter.getMinorUnits(), description);
+    }
+    
+    public Transaction(String accountNumber, TransactionType type, 
+                      long amountMinor, long balanceAfterMinor, String description) {
+        this(generateTransactionId(), accountNumber, type, amountMinor, balanceAfterMinor, description);
+    }
+    
+    // For callers that allocate transaction ids themselves, e.g. in blocks
+    public Transaction(String transactionId, String accountNumber, TransactionType type, 
+                      long amountMinor, long balanceAfterMinor, String description) {
+        this.transactionId = transactionId;
         this.accountNumber = accountNumber;
         this.type = type;
-        this.amount = amount;
-        this.balanceAfter = balanceAfter;
+        this.amountMinor = amountMinor;
+        this.balanceAfterMinor = balanceAfterMinor;
         this.timestamp = new Date();
         this.description = description;
         this.status = "SUCCESS";
     }
     
-    private String generateTransactionId() {
-        return "TXN" + System.currentTimeMillis() + (int)(Math.random() * 1000);
+    private static String generateTransactionId() {
+        return "TXN" + IdGenerators.transactions().nextId();
     }
     
     // Getters and Setters
@@ -87,20 +104,36 @@ public class Transaction implements Serializable {
         this.type = type;
     }
     
-    public double getAmount() {
-        return amount;
+    public Money getAmount() {
+        return Money.ofMinor(amountMinor);
+    }
+    
+    public void setAmount(Money amount) {
+        this.amountMinor = amount.getMinorUnits();
     }
     
-    public void setAmount(double amount) {
-        this.amount = amount;
+    public long getAmountMinor() {
+        return amountMinor;
     }
     
-    public double getBalanceAfter() {
-        return balanceAfter;
+    public void setAmountMinor(long amountMinor) {
+        this.amountMinor = amountMinor;
     }
     
-    public void setBalanceAfter(double balanceAfter) {
-        this.balanceAfter = balanceAfter;
+    public Money getBalanceAfter() {
+        return Money.ofMinor(balanceAfterMinor);
+    }
+    
+    public void setBalanceAfter(Money balanceAfter) {
+        this.balanceAfterMinor = balanceAfter.getMinorUnits();
+    }
+    
+    public long getBalanceAfterMinor() {
+        return balanceAfterMinor;
+    }
+    
+    public void setBalanceAfterMinor(long balanceAfterMinor) {
+        this.balanceAfterMinor = balanceAfterMinor;
     }
     
     public Date getTimestamp() {
@@ -141,11 +174,22 @@ public class Transaction implements Serializable {
                 "transactionId='" + transactionId + '\'' +
                 ", accountNumber='" + accountNumber + '\'' +
                 ", type=" + type +
-                ", amount=" + amount +
-                ", balanceAfter=" + balanceAfter +
+                ", amount=" + Money.format(amountMinor) +
+                ", balanceAfter=" + Money.format(balanceAfterMinor) +
                 ", timestamp=" + timestamp +
                 ", description='" + description + '\'' +
                 ", status='" + status + '\'' +
                 '}';
     }
+    
+    // Converts the double amounts of older serialized records to minor units
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (amount != 0.0 || balanceAfter != 0.0) {
+            amountMinor = Money.toMinor(amount);
+            balanceAfterMinor = Money.toMinor(balanceAfter);
+            amount = 0.0;
+            balanceAfter = 0.0;
+        }
+    }
 }
\ No newline at end of file
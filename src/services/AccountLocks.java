@@ -0,0 +1,67 @@
+package services;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped per-account locks. Each account number hashes to one of a fixed
+ * number of stripes, so memory stays constant however many accounts exist,
+ * while operations on different accounts rarely contend.
+ *
+ * Callers that need two accounts must use {@link #lockPair} so every thread
+ * acquires stripes in the same (index) order and transfers cannot deadlock.
+ */
+public class AccountLocks {
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public AccountLocks() {
+        this(Runtime.getRuntime().availableProcessors() * 64);
+    }
+
+    public AccountLocks(int minimumStripes) {
+        int size = Integer.highestOneBit(Math.max(2, minimumStripes - 1)) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    public int stripeOf(String accountNumber) {
+        int h = accountNumber.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    public void lock(String accountNumber) {
+        stripes[stripeOf(accountNumber)].lock();
+    }
+
+    public void unlock(String accountNumber) {
+        stripes[stripeOf(accountNumber)].unlock();
+    }
+
+    /**
+     * Locks the stripes of both accounts, lower stripe index first.
+     */
+    public void lockPair(String first, String second) {
+        int a = stripeOf(first);
+        int b = stripeOf(second);
+        if (a == b) {
+            stripes[a].lock();
+        } else {
+            stripes[Math.min(a, b)].lock();
+            stripes[Math.max(a, b)].lock();
+        }
+    }
+
+    public void unlockPair(String first, String second) {
+        int a = stripeOf(first);
+        int b = stripeOf(second);
+        if (a == b) {
+            stripes[a].unlock();
+        } else {
+            stripes[Math.max(a, b)].unlock();
+            stripes[Math.min(a, b)].unlock();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package services;
+
+import models.Account;
+import utils.Log;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory account store with hash indexes on account number (primary),
+ * lower-cased email and phone number (secondary). All lookups are O(1).
+ *
+ * The secondary keys an account was indexed under are remembered, so
+ * {@link #update(Account)} can move the entries when email or phone change.
+ *
+ * Lookups are lock-free reads of concurrent maps. Writers synchronize on the
+ * repository so the uniqueness checks and the index updates happen together.
+ */
+public class AccountRepository {
+
+    private static final Log LOG = Log.get(AccountRepository.class);
+
+    private final Map<String, Account> byNumber;
+    private final Map<String, Account> byEmail;
+    private final Map<String, Account> byPhone;
+    private final Map<String, String> indexedEmail;
+    private final Map<String, String> indexedPhone;
+
+    public AccountRepository() {
+        this(16);
+    }
+
+    public AccountRepository(int expectedSize) {
+        int capacity = Math.max(16, (int) (expectedSize / 0.75f) + 1);
+        byNumber = new ConcurrentHashMap<>(capacity);
+        byEmail = new ConcurrentHashMap<>(capacity);
+        byPhone = new ConcurrentHashMap<>(capacity);
+        indexedEmail = new ConcurrentHashMap<>(capacity);
+        indexedPhone = new ConcurrentHashMap<>(capacity);
+    }
+
+    /**
+     * Builds a repository from loaded data. Files written before the indexes
+     * existed may contain duplicates; the first account wins each key.
+     */
+    public static AccountRepository of(Collection<Account> accounts) {
+        AccountRepository repository = new AccountRepository(accounts.size());
+        for (Account account : accounts) {
+            String number = account.getAccountNumber();
+            if (repository.byNumber.putIfAbsent(number, account) != null) {
+                LOG.warn("Skipping duplicate account number {}", number);
+                continue;
+            }
+            String email = emailKey(account.getEmail());
+            String phone = phoneKey(account.getPhoneNumber());
+            repository.indexSecondary(number, account,
+                    email != null && !repository.byEmail.containsKey(email) ? email : null,
+                    phone != null && !repository.byPhone.containsKey(phone) ? phone : null);
+        }
+        return repository;
+    }
+
+    /**
+     * Adds a new account and indexes it.
+     * @throws IllegalArgumentException if the account number, email or phone is already taken
+     */
+    public synchronized void add(Account account) {
+        String number = account.getAccountNumber();
+        String email = emailKey(account.getEmail());
+        String phone = phoneKey(account.getPhoneNumber());
+
+        if (byNumber.containsKey(number)) {
+            throw new IllegalArgumentException("Account number already exists: " + number);
+        }
+        if (email != null && byEmail.containsKey(email)) {
+            throw new IllegalArgumentException("Email address already exists");
+        }
+        if (phone != null && byPhone.containsKey(phone)) {
+            throw new IllegalArgumentException("Phone number already exists");
+        }
+
+        byNumber.put(number, account);
+        indexSecondary(number, account, email, phone);
+    }
+
+    /**
+     * Re-indexes an account after its email or phone number changed.
+     * @throws IllegalArgumentException if the new email or phone belongs to another account
+     */
+    public synchronized void update(Account account) {
+        String number = account.getAccountNumber();
+        if (byNumber.get(number) != account) {
+            throw new IllegalArgumentException("Account not in repository: " + number);
+        }
+
+        String email = emailKey(account.getEmail());
+        String phone = phoneKey(account.getPhoneNumber());
+        Account emailOwner = email != null ? byEmail.get(email) : null;
+        Account phoneOwner = phone != null ? byPhone.get(phone) : null;
+        if (emailOwner != null && emailOwner != account) {
+            throw new IllegalArgumentException("Email address already exists");
+        }
+        if (phoneOwner != null && phoneOwner != account) {
+            throw new IllegalArgumentException("Phone number already exists");
+        }
+
+        unindexSecondary(number);
+        indexSecondary(number, account, email, phone);
+    }
+
+    public synchronized Account remove(String accountNumber) {
+        Account removed = byNumber.remove(accountNumber);
+        if (removed != null) {
+            unindexSecondary(accountNumber);
+        }
+        return removed;
+    }
+
+    public Account findByNumber(String accountNumber) {
+        return accountNumber != null ? byNumber.get(accountNumber) : null;
+    }
+
+    public Account findByEmail(String email) {
+        String key = emailKey(email);
+        return key != null ? byEmail.get(key) : null;
+    }
+
+    public Account findByPhone(String phoneNumber) {
+        String key = phoneKey(phoneNumber);
+        return key != null ? byPhone.get(key) : null;
+    }
+
+    public boolean containsEmail(String email) {
+        return findByEmail(email) != null;
+    }
+
+    public boolean containsPhone(String phoneNumber) {
+        return findByPhone(phoneNumber) != null;
+    }
+
+    public int size() {
+        return byNumber.size();
+    }
+
+    public boolean isEmpty() {
+        return byNumber.isEmpty();
+    }
+
+    /**
+     * Returns a snapshot list of all accounts.
+     */
+    public List<Account> findAll() {
+        return new ArrayList<>(byNumber.values());
+    }
+
+    private void indexSecondary(String number, Account account, String email, String phone) {
+        if (email != null) {
+            byEmail.put(email, account);
+            indexedEmail.put(number, email);
+        }
+        if (phone != null) {
+            byPhone.put(phone, account);
+            indexedPhone.put(number, phone);
+        }
+    }
+
+    private void unindexSecondary(String number) {
+        String email = indexedEmail.remove(number);
+        if (email != null) {
+            byEmail.remove(email);
+        }
+        String phone = indexedPhone.remove(number);
+        if (phone != null) {
+            byPhone.remove(phone);
+        }
+    }
+
+    static String emailKey(String email) {
+        return email != null ? email.trim().toLowerCase(Locale.ROOT) : null;
+    }
+
+    static String phoneKey(String phoneNumber) {
+        return phoneNumber != null ? phoneNumber.trim() : null;
+    }
+}
@@ -1,16 +1,94 @@
 package services;
 
 import models.Account;
+import models.Money;
 import models.Transaction;
+import utils.Histogram;
+import utils.IdGenerators;
+import utils.InputValidator;
+import utils.LatencyStats;
+import utils.Log;
+import utils.Metrics;
+import utils.PinHasher;
+import utils.ValidationCode;
 import utils.ValidationUtils;
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+/**
+ * Account operations. Safe for concurrent callers: balance mutations take the
+ * striped lock of each account involved (transfers lock both in a fixed
+ * order), and only hold them while the change is appended to the write-ahead
+ * log and applied in memory. Waiting for the group fsync happens after the
+ * locks are released, so other operations on the same account can join the
+ * same batch. Nothing reaches the account storage or the transaction journal
+ * before its log record is durable.
+ */
 public class AccountService {
-    private List<Account> accounts;
-    private FileManager fileManager;
+
+    private static final Log LOG = Log.get(AccountService.class);
+
+    private AccountRepository accounts;
+    private AccountStorage storage;
     private TransactionService transactionService;
-    private static final String ACCOUNTS_FILE = "data/accounts.dat";
+    private WriteAheadLog writeAheadLog;
+    private final AccountLocks accountLocks = new AccountLocks();
+    private final PinAuthenticator pinAuthenticator = new PinAuthenticator();
+    private final LoginThrottle loginThrottle;
+    // Set once a plaintext PIN has been replaced by a hash; see close()
+    private volatile boolean plaintextPinsReplaced;
+    // Set when a durable record could not be written to the journal or the
+    // account storage; the log then has to survive until a restart replays it
+    private volatile boolean writeThroughBehind;
+    // Mutations hold the read side; a checkpoint takes the write side so the
+    // snapshot and the log reset see no half-applied operation
+    private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private final AtomicBoolean checkpointRunning = new AtomicBoolean();
+    // Accounts changed since the last checkpoint, for backends that save deltas
+    private final Set<Account> changedAccounts = ConcurrentHashMap.newKeySet();
+    // Asynchronous transfers logged but not yet written through (see reserveTransfer)
+    private final Object asyncMonitor = new Object();
+    private int asyncInFlight;
+    private final Object pipelineLock = new Object();
+    private volatile TransferPipeline transferPipeline;
+    private final String accountsFile;
+    private static final String ACCOUNTS_FILE = "accounts.dat";
+    private static final String WAL_FILE = "accounts.wal";
+    
+    // Group commit: fsync the log every N records or N milliseconds, whichever comes first
+    private static final int GROUP_COMMIT_RECORDS = Integer.getInteger("banking.wal.groupCommitRecords", 64);
+    private static final long GROUP_COMMIT_MILLIS = Long.getLong("banking.wal.groupCommitMillis", 2L);
+    // Write the account snapshot and reset the log after this many log records
+    private static final int CHECKPOINT_RECORDS = Integer.getInteger("banking.wal.checkpointRecords", 1000);
+    // Instructions per write-ahead log record in postBatch, and new accounts per
+    // record in onboardAccounts; keeps records well under the size limit
+    private static final int POSTINGS_PER_RECORD = 1024;
+    private static final int OPENINGS_PER_RECORD = 1024;
+    
+    private static final LatencyStats CREATE_ACCOUNT_LATENCY = Metrics.latency("account.create");
+    private static final LatencyStats AUTHENTICATE_LATENCY = Metrics.latency("account.authenticate");
+    private static final LatencyStats DEPOSIT_LATENCY = Metrics.latency("account.deposit");
+    private static final LatencyStats WITHDRAW_LATENCY = Metrics.latency("account.withdraw");
+    private static final LatencyStats TRANSFER_LATENCY = Metrics.latency("account.transfer");
+    private static final LongAdder DEPOSIT_FAILURES = Metrics.counter("account.deposit.failures");
+    private static final LongAdder WITHDRAW_FAILURES = Metrics.counter("account.withdraw.failures");
+    private static final LongAdder TRANSFER_FAILURES = Metrics.counter("account.transfer.failures");
+    private static final LatencyStats CHECKPOINT_LATENCY = Metrics.latency("account.checkpoint");
+    private static final LatencyStats STORE_LOAD_LATENCY = Metrics.latency("accounts.store.load");
+    private static final LatencyStats STORE_SAVE_LATENCY = Metrics.latency("accounts.store.save");
+    private static final Histogram STORE_SAVE_BYTES = Metrics.histogram("accounts.store.save.bytes");
+    private static final LongAdder STORE_BYTES_WRITTEN = Metrics.counter("accounts.store.bytesWritten");
+    private static final LatencyStats STORE_DELTA_LATENCY = Metrics.latency("accounts.store.saveDelta");
+    private static final Histogram STORE_DELTA_BYTES = Metrics.histogram("accounts.store.delta.bytes");
     
 //    public AccountService() {
 //        fileManager = new FileManager();
@@ -18,22 +96,42 @@ public class AccountService {
 //        loadAccounts();
         
     public AccountService() {
-        fileManager = new FileManager();
-        transactionService = new TransactionService();
-        loadAccounts();
+        this("data");
+    }
+    
+    public AccountService(String dataDirectory) {
+        this(dataDirectory, new LoginThrottle());
+    }
+    
+    /**
+     * With the given login throttle, e.g. one driven by a simulated clock.
+     */
+    public AccountService(String dataDirectory, LoginThrottle loginThrottle) {
+        this.loginThrottle = loginThrottle;
+        storage = AccountStorage.fromSystemProperty();
+        transactionService = new TransactionService(dataDirectory);
+        accountsFile = new File(dataDirectory, storage.getDefaultFileName()).getPath();
+        writeAheadLog = new WriteAheadLog(new File(dataDirectory, WAL_FILE).getPath(), 
+                GROUP_COMMIT_RECORDS, GROUP_COMMIT_MILLIS);
+        loadAccounts(dataDirectory);
+        recoverFromLog();
+        // Accounts are usable now; the history follows in the background
+        transactionService.loadInBackground();
+        registerGauges();
         
         // ADD THIS FOR TESTING
         if (accounts.isEmpty()) {
-            System.out.println("Creating test account...");
+            LOG.info("Creating test account...");
             try {
                 Account testAccount = new Account("Test User", "9999999999", "test@test.com", 
-                                                "Test Address", Account.AccountType.SAVINGS, 1000.0);
-                testAccount.setPin("1234");
+                                                "Test Address", Account.AccountType.SAVINGS, Money.ofMajor(1000));
+                testAccount.setPinHash(PinHasher.hash("1234"));
                 accounts.add(testAccount);
+                markChanged(testAccount);
                 saveAccounts();
-                System.out.println("Test account created: " + testAccount.getAccountNumber() + " PIN: 1234");
+                LOG.info("Test account created: {}", testAccount.getAccountNumber());
             } catch (Exception e) {
-                System.out.println("Error creating test account: " + e.getMessage());
+                LOG.error("Error creating test account: {}", e.getMessage());
             }
         }
      
@@ -45,9 +143,20 @@ public class AccountService {
     
     
     
-    public Account createAccount(String customerName, String phoneNumber, String email, 
-                               String address, Account.AccountType accountType, 
-                               double initialDeposit, String pin) {
+    public Account createAccount(String customerName, String phoneNumber, String email,
+                                 String address, Account.AccountType accountType,
+                                 Money initialDeposit, String pin) {
+        long start = System.nanoTime();
+        try {
+            return openAccount(customerName, phoneNumber, email, address, accountType, initialDeposit, pin);
+        } finally {
+            CREATE_ACCOUNT_LATENCY.record(System.nanoTime() - start);
+        }
+    }
+    
+    private Account openAccount(String customerName, String phoneNumber, String email,
+                                String address, Account.AccountType accountType,
+                                Money initialDeposit, String pin) {
         
         if (!ValidationUtils.isValidName(customerName)) {
             throw new IllegalArgumentException("Invalid customer name");
@@ -69,7 +178,8 @@ public class AccountService {
             throw new IllegalArgumentException("Invalid PIN format");
         }
         
-        if (!ValidationUtils.isValidMinimumDeposit(initialDeposit, accountType.name())) {
+        if (!ValidationUtils.isValidAmount(initialDeposit) 
+                || !ValidationUtils.isValidMinimumDeposit(initialDeposit, accountType.name())) {
             throw new IllegalArgumentException("Insufficient initial deposit for account type");
         }
         
@@ -89,14 +199,15 @@ public class AccountService {
             accountType,
             initialDeposit
         );
-        account.setPin(pin);
-     // After account.setPin(pin); line, add:
-        System.out.println("DEBUG: Account created with PIN: " + pin);
-        System.out.println("DEBUG: Account number: " + account.getAccountNumber());
-        System.out.println("DEBUG: Account saved in list: " + accounts.size() + " accounts total");
+        String pinHash = pinAuthenticator.hash(pin);
+        if (pinHash == null) {
+            throw new IllegalStateException("Too many requests in progress, please try again");
+        }
+        account.setPinHash(pinHash);
+        LOG.debug("Creating account {}, {} accounts before it", account.getAccountNumber(), accounts.size());
         
         accounts.add(account);
-        saveAccounts();
+        persistAccount(account);
         
         Transaction initialTransaction = new Transaction(
             account.getAccountNumber(),
@@ -106,177 +217,1150 @@ public class AccountService {
             "Initial deposit - Account opening"
         );
         transactionService.recordTransaction(initialTransaction);
+        checkpoint();
         
         return account;
     }
     
+    /**
+     * Opens many accounts at once, applying the same rules as createAccount.
+     * Rows are validated in parallel, then checked for email and phone numbers
+     * already taken, either by an existing account or by an earlier row of the
+     * batch. Accepted rows get account numbers and opening transactions from
+     * one block of ids each. A bad row is reported and skipped; it never fails
+     * the rest of the batch.
+     *
+     * Like postBatch, the new accounts are logged OPENINGS_PER_RECORD to a
+     * write-ahead log record, each carrying the accounts with their opening
+     * deposits, and the batch waits for the group commits covering them. A
+     * record that cannot be logged or synced is rolled back and its rows are
+     * reported as not committed.
+     */
+    public OnboardingReport onboardAccounts(Stream<OnboardingRequest> requests) {
+        long started = System.currentTimeMillis();
+        List<OnboardingRequest> batch = requests.collect(Collectors.toList());
+        int size = batch.size();
+
+        OnboardingResult[] results = new OnboardingResult[size];
+        IntStream.range(0, size).parallel()
+                .forEach(i -> results[i] = validateOnboarding(i + 1, batch.get(i)));
+
+        // Sequential so the first of two rows sharing an email or phone wins
+        Set<String> batchEmails = new HashSet<>();
+        Set<String> batchPhones = new HashSet<>();
+        int accepted = 0;
+        for (int i = 0; i < size; i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            OnboardingRequest request = batch.get(i);
+            if (isEmailExists(request.getEmail())
+                    || !batchEmails.add(AccountRepository.emailKey(request.getEmail()))) {
+                results[i] = OnboardingResult.rejected(i + 1, "email", ValidationCode.DUPLICATE);
+            } else if (isPhoneExists(request.getPhoneNumber())
+                    || !batchPhones.add(AccountRepository.phoneKey(request.getPhoneNumber()))) {
+                results[i] = OnboardingResult.rejected(i + 1, "phoneNumber", ValidationCode.DUPLICATE);
+            } else {
+                accepted++;
+            }
+        }
+
+        long[] accountIds = new long[accepted];
+        long[] transactionIds = new long[accepted];
+        IdGenerators.accounts().nextIds(accountIds);
+        IdGenerators.transactions().nextIds(transactionIds);
+
+        int[] rows = new int[accepted];
+        Account[] created = new Account[accepted];
+        for (int i = 0, next = 0; i < size; i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            OnboardingRequest request = batch.get(i);
+            Account account = new Account(
+                "ACC" + accountIds[next],
+                ValidationUtils.sanitizeInput(request.getCustomerName()),
+                ValidationUtils.sanitizeInput(request.getPhoneNumber()),
+                ValidationUtils.sanitizeInput(request.getEmail()),
+                ValidationUtils.sanitizeInput(request.getAddress()),
+                request.getAccountType(),
+                request.getInitialDeposit()
+            );
+            rows[next] = i;
+            created[next++] = account;
+        }
+        // Key derivation dominates onboarding, so it gets every core rather than the login pool
+        IntStream.range(0, accepted).parallel()
+                .forEach(n -> created[n].setPinHash(PinHasher.hash(batch.get(rows[n]).getPin())));
+
+        List<WriteAheadLog.Record> records = new ArrayList<>();
+        List<Long> lsns = new ArrayList<>();
+        // First accepted row of each logged record, plus the end of the last one
+        List<Integer> recordStarts = new ArrayList<>();
+        int opened = 0;
+        boolean committed = true;
+        checkpointLock.writeLock().lock();
+        try {
+            WriteAheadLog.Record record = new WriteAheadLog.Record();
+            int recordStart = 0;
+            for (int n = 0; n < accepted; n++) {
+                Account account = created[n];
+                int i = rows[n];
+                try {
+                    accounts.add(account);
+                    long deposit = account.getBalanceMinor();
+                    record.openAccount(account)
+                            .setBalance(account.getAccountNumber(), deposit)
+                            .addTransaction(new Transaction("TXN" + transactionIds[n], account.getAccountNumber(),
+                                    Transaction.TransactionType.DEPOSIT, deposit, deposit,
+                                    "Initial deposit - Account opening"));
+                    results[i] = OnboardingResult.created(i + 1, account.getAccountNumber());
+                    opened++;
+                } catch (IllegalArgumentException e) {
+                    // Taken by a concurrent createAccount since the duplicate check
+                    String field = e.getMessage().startsWith("Phone") ? "phoneNumber" : "email";
+                    results[i] = OnboardingResult.rejected(i + 1, field, ValidationCode.DUPLICATE);
+                }
+
+                if (n + 1 - recordStart < OPENINGS_PER_RECORD && n + 1 < accepted) {
+                    continue;
+                }
+                if (!record.getOpenedAccounts().isEmpty()) {
+                    long lsn = logAndApply(record);
+                    if (lsn < 0) {
+                        // Nothing from this record on was applied or even added
+                        for (Account unlogged : record.getOpenedAccounts()) {
+                            accounts.remove(unlogged.getAccountNumber());
+                        }
+                        for (int m = recordStart; m < accepted; m++) {
+                            if (m <= n && !results[rows[m]].isCreated()) {
+                                continue;
+                            }
+                            if (m <= n) {
+                                opened--;
+                            }
+                            results[rows[m]] = OnboardingResult.notCommitted(rows[m] + 1);
+                        }
+                        committed = false;
+                        break;
+                    }
+                    records.add(record);
+                    lsns.add(lsn);
+                    recordStarts.add(recordStart);
+                }
+                record = new WriteAheadLog.Record();
+                recordStart = n + 1;
+            }
+            recordStarts.add(recordStart);
+
+            for (int r = 0; r < records.size(); r++) {
+                if (awaitCommit(lsns.get(r), records.get(r))) {
+                    continue;
+                }
+                // Rolled back: none of this record's accounts were opened
+                for (int m = recordStarts.get(r); m < recordStarts.get(r + 1); m++) {
+                    if (results[rows[m]].isCreated()) {
+                        opened--;
+                        results[rows[m]] = OnboardingResult.notCommitted(rows[m] + 1);
+                    }
+                }
+                committed = false;
+            }
+            if (committed && !records.isEmpty()) {
+                // Leave no log to replay for the batch; it is committed without this
+                checkpoint();
+            }
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+
+        return new OnboardingReport(Arrays.asList(results), opened, committed,
+                System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Field checks for one onboarding row, in the order createAccount applies
+     * them. Returns null if the row is valid.
+     */
+    private static OnboardingResult validateOnboarding(int row, OnboardingRequest request) {
+        ValidationCode code;
+        if (!(code = InputValidator.checkName(request.getCustomerName())).isValid()) {
+            return OnboardingResult.rejected(row, "customerName", code);
+        }
+        if (!(code = InputValidator.checkPhone(request.getPhoneNumber())).isValid()) {
+            return OnboardingResult.rejected(row, "phoneNumber", code);
+        }
+        if (!(code = InputValidator.checkEmail(request.getEmail())).isValid()) {
+            return OnboardingResult.rejected(row, "email", code);
+        }
+        if (!(code = InputValidator.checkAddress(request.getAddress())).isValid()) {
+            return OnboardingResult.rejected(row, "address", code);
+        }
+        if (!(code = InputValidator.checkPin(request.getPin())).isValid()) {
+            return OnboardingResult.rejected(row, "pin", code);
+        }
+        if (request.getAccountType() == null) {
+            return OnboardingResult.rejected(row, "accountType", ValidationCode.INVALID_FORMAT);
+        }
+        Money deposit = request.getInitialDeposit();
+        if (!ValidationUtils.isValidAmount(deposit)) {
+            return OnboardingResult.rejected(row, "initialDeposit", ValidationCode.INVALID_FORMAT);
+        }
+        if (!ValidationUtils.isValidMinimumDeposit(deposit, request.getAccountType().name())) {
+            return OnboardingResult.rejected(row, "initialDeposit", ValidationCode.BELOW_MINIMUM);
+        }
+        return null;
+    }
+
     public void verifyAccountExists(String accountNumber) {
         Account found = getAccountByNumber(accountNumber);
         if (found != null) {
-            System.out.println("Account EXISTS: " + accountNumber + " PIN: " + found.getPin());
+            LOG.debug("Account exists: {}", accountNumber);
         } else {
-            System.out.println("Account NOT FOUND: " + accountNumber);
-            System.out.println("Available accounts:");
-            for (Account acc : accounts) {
-                System.out.println("  - " + acc.getAccountNumber() + " (PIN: " + acc.getPin() + ")");
-            }
+            LOG.debug("Account not found: {} ({} accounts loaded)", accountNumber, accounts.size());
         }
     }
     
     
+    /**
+     * Returns the account if the PIN matches, otherwise null. Attempts on an
+     * account that has failed too often recently are turned away by the
+     * {@link LoginThrottle} before any lookup or hashing; only failures on
+     * existing accounts are counted, since there is nothing to break into
+     * otherwise. Verification runs on the {@link PinAuthenticator} pool.
+     * A plaintext PIN left by an older
+     * version, or a hash of an outdated cost, is rehashed on the first
+     * successful login; the new hash reaches disk with the next checkpoint.
+     *
+     * @throws IllegalStateException if the verification queue is full; the
+     *         PIN was not checked and the login can be retried
+     */
     public Account authenticateUser(String accountNumber, String pin) {
-        System.out.println("DEBUG: Login attempt - Account: " + accountNumber + ", PIN: " + pin);
+        long start = System.nanoTime();
+        try {
+            return checkCredentials(accountNumber, pin);
+        } finally {
+            AUTHENTICATE_LATENCY.record(System.nanoTime() - start);
+        }
+    }
+    
+    private Account checkCredentials(String accountNumber, String pin) {
+        LOG.debug("Login attempt for account {}", accountNumber);
         
         if (!ValidationUtils.isNotEmpty(accountNumber) || !ValidationUtils.isNotEmpty(pin)) {
-            System.out.println("DEBUG: Empty account number or PIN");
+            LOG.debug("Empty account number or PIN");
             return null;
         }
         
-        // Add this loop to see all accounts
-        for (Account acc : accounts) {
-            System.out.println("DEBUG: Checking account " + acc.getAccountNumber() + 
-                             " with PIN " + acc.getPin() + " (Active: " + acc.isActive() + ")");
+        String trimmedNumber = accountNumber.trim();
+        long retryAfter = loginThrottle.retryAfterMillis(trimmedNumber);
+        if (retryAfter > 0) {
+            LOG.debug("Login for {} throttled for another {}s", trimmedNumber, (retryAfter + 999) / 1000);
+            return null;
         }
         
-        Account result = accounts.stream()
-                .filter(account -> account.getAccountNumber().equals(accountNumber.trim()))
-                .filter(account -> account.getPin().equals(pin.trim()))
-                .filter(Account::isActive)
-                .findFirst()
-                .orElse(null);
+        String trimmedPin = pin.trim();
+        Account candidate = accounts.findByNumber(trimmedNumber);
+        PinAuthenticator.Result verdict = candidate != null && candidate.isActive()
+                ? pinAuthenticator.verify(candidate, trimmedPin) : PinAuthenticator.Result.MISMATCH;
+        if (verdict == PinAuthenticator.Result.REJECTED) {
+            // Not the user's fault, so not counted against the account
+            throw new IllegalStateException("Too many requests in progress, please try again");
+        }
+        Account result = verdict == PinAuthenticator.Result.VERIFIED ? candidate : null;
+        if (result == null && candidate != null) {
+            loginThrottle.recordFailure(trimmedNumber);
+        }
+        if (result != null && (result.getPinHash() == null || PinHasher.needsRehash(result.getPinHash()))) {
+            upgradePinHash(result, trimmedPin);
+        }
         
-        System.out.println("DEBUG: Authentication result: " + (result != null ? "SUCCESS" : "FAILED"));
+        LOG.debug("Authentication for {}: {}", trimmedNumber, result != null ? "SUCCESS" : "FAILED");
         return result;
     }
     
-    public boolean deposit(String accountNumber, double amount, String description) {
+    private void upgradePinHash(Account account, String pin) {
+        String pinHash = pinAuthenticator.hash(pin);
+        if (pinHash == null) {
+            return; // Queue full; try again at the next login
+        }
+        synchronized (account) {
+            if (account.getPinHash() == null || PinHasher.needsRehash(account.getPinHash())) {
+                plaintextPinsReplaced |= account.getPin() != null;
+                account.setPinHash(pinHash);
+                persistAccount(account);
+            }
+        }
+    }
+    
+    public boolean deposit(String accountNumber, Money amount, String description) {
+        long start = System.nanoTime();
+        boolean done = false;
+        try {
+            done = applyDeposit(accountNumber, amount, description);
+            return done;
+        } finally {
+            DEPOSIT_LATENCY.record(System.nanoTime() - start);
+            if (!done) {
+                DEPOSIT_FAILURES.increment();
+            }
+        }
+    }
+    
+    private boolean applyDeposit(String accountNumber, Money amount, String description) {
         if (!ValidationUtils.isValidAmount(amount)) return false;
+        long paise = amount.getMinorUnits();
         
         Account account = getAccountByNumber(accountNumber);
-        if (account == null || !account.isActive()) return false;
-        
-        double newBalance = account.getBalance() + amount;
-        account.setBalance(newBalance);
-        
-        if (saveAccounts()) {
-            Transaction transaction = new Transaction(
-                accountNumber,
-                Transaction.TransactionType.DEPOSIT,
-                amount,
-                newBalance,
-                description != null ? description : "Cash deposit"
-            );
-            transactionService.recordTransaction(transaction);
-            return true;
-        }
+        if (account == null) return false;
         
-        return false;
+        checkpointLock.readLock().lock();
+        try {
+            WriteAheadLog.Record record;
+            long lsn;
+            accountLocks.lock(accountNumber);
+            try {
+                if (!account.isActive()) return false;
+                
+                long newBalance = Math.addExact(account.getBalanceMinor(), paise);
+                Transaction transaction = new Transaction(
+                    accountNumber,
+                    Transaction.TransactionType.DEPOSIT,
+                    paise,
+                    newBalance,
+                    description != null ? description : "Cash deposit"
+                );
+                
+                record = new WriteAheadLog.Record()
+                        .setBalance(accountNumber, newBalance)
+                        .addTransaction(transaction);
+                lsn = logAndApply(record);
+            } finally {
+                accountLocks.unlock(accountNumber);
+            }
+            if (!awaitCommit(lsn, record)) return false;
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        checkpointIfDue();
+        return true;
     }
     
-    public boolean withdraw(String accountNumber, double amount, String description) {
+    public boolean withdraw(String accountNumber, Money amount, String description) {
+        long start = System.nanoTime();
+        boolean done = false;
+        try {
+            done = applyWithdrawal(accountNumber, amount, description);
+            return done;
+        } finally {
+            WITHDRAW_LATENCY.record(System.nanoTime() - start);
+            if (!done) {
+                WITHDRAW_FAILURES.increment();
+            }
+        }
+    }
+    
+    private boolean applyWithdrawal(String accountNumber, Money amount, String description) {
         if (!ValidationUtils.isValidAmount(amount)) return false;
+        long paise = amount.getMinorUnits();
         
         Account account = getAccountByNumber(accountNumber);
-        if (account == null || !account.isActive()) return false;
-        
-        if (!ValidationUtils.canWithdraw(amount, account.getBalance())) return false;
-        
-        double newBalance = account.getBalance() - amount;
-        account.setBalance(newBalance);
+        if (account == null) return false;
         
-        if (saveAccounts()) {
-            Transaction transaction = new Transaction(
-                accountNumber,
-                Transaction.TransactionType.WITHDRAWAL,
-                amount,
-                newBalance,
-                description != null ? description : "Cash withdrawal"
-            );
-            transactionService.recordTransaction(transaction);
-            return true;
+        checkpointLock.readLock().lock();
+        try {
+            WriteAheadLog.Record record;
+            long lsn;
+            accountLocks.lock(accountNumber);
+            try {
+                if (!account.isActive()) return false;
+                if (!ValidationUtils.canWithdraw(paise, account.getBalanceMinor())) return false;
+                
+                long newBalance = account.getBalanceMinor() - paise;
+                Transaction transaction = new Transaction(
+                    accountNumber,
+                    Transaction.TransactionType.WITHDRAWAL,
+                    paise,
+                    newBalance,
+                    description != null ? description : "Cash withdrawal"
+                );
+                
+                record = new WriteAheadLog.Record()
+                        .setBalance(accountNumber, newBalance)
+                        .addTransaction(transaction);
+                lsn = logAndApply(record);
+            } finally {
+                accountLocks.unlock(accountNumber);
+            }
+            if (!awaitCommit(lsn, record)) return false;
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+        checkpointIfDue();
+        return true;
+    }
+    
+    public boolean transfer(String fromAccountNumber, String toAccountNumber, Money amount, String description) {
+        long start = System.nanoTime();
+        boolean done = false;
+        try {
+            done = applyTransfer(fromAccountNumber, toAccountNumber, amount, description);
+            return done;
+        } finally {
+            TRANSFER_LATENCY.record(System.nanoTime() - start);
+            if (!done) {
+                TRANSFER_FAILURES.increment();
+            }
         }
-        
-        return false;
     }
     
-    public boolean transfer(String fromAccountNumber, String toAccountNumber, double amount, String description) {
+    private boolean applyTransfer(String fromAccountNumber, String toAccountNumber, Money amount, String description) {
         if (!ValidationUtils.isValidAmount(amount)) return false;
+        long paise = amount.getMinorUnits();
         if (fromAccountNumber.equals(toAccountNumber)) return false;
         
         Account fromAccount = getAccountByNumber(fromAccountNumber);
         Account toAccount = getAccountByNumber(toAccountNumber);
+        if (fromAccount == null || toAccount == null) return false;
         
-        if (fromAccount == null || toAccount == null || 
-            !fromAccount.isActive() || !toAccount.isActive()) return false;
-        
-        if (!ValidationUtils.canWithdraw(amount, fromAccount.getBalance())) return false;
-        
-        fromAccount.setBalance(fromAccount.getBalance() - amount);
-        toAccount.setBalance(toAccount.getBalance() + amount);
-        
-        if (saveAccounts()) {
-            String transferDescription = description != null ? description : "Transfer between accounts";
-            
-            Transaction debitTransaction = new Transaction(
-                fromAccountNumber,
-                Transaction.TransactionType.TRANSFER_OUT,
-                amount,
-                fromAccount.getBalance(),
-                transferDescription + " - Transfer to " + toAccountNumber
-            );
-            debitTransaction.setTransferToAccount(toAccountNumber);
-            
-            Transaction creditTransaction = new Transaction(
-                toAccountNumber,
-                Transaction.TransactionType.TRANSFER_IN,
-                amount,
-                toAccount.getBalance(),
-                transferDescription + " - Transfer from " + fromAccountNumber
-            );
-            
-            transactionService.recordTransaction(debitTransaction);
-            transactionService.recordTransaction(creditTransaction);
-            return true;
+        checkpointLock.readLock().lock();
+        try {
+            WriteAheadLog.Record record;
+            long lsn;
+            accountLocks.lockPair(fromAccountNumber, toAccountNumber);
+            try {
+                if (!fromAccount.isActive() || !toAccount.isActive()) return false;
+                if (!ValidationUtils.canWithdraw(paise, fromAccount.getBalanceMinor())) return false;
+                
+                long fromBalance = fromAccount.getBalanceMinor() - paise;
+                long toBalance = Math.addExact(toAccount.getBalanceMinor(), paise);
+                String transferDescription = description != null ? description : "Transfer between accounts";
+                
+                Transaction debitTransaction = new Transaction(
+                    fromAccountNumber,
+                    Transaction.TransactionType.TRANSFER_OUT,
+                    paise,
+                    fromBalance,
+                    transferDescription + " - Transfer to " + toAccountNumber
+                );
+                debitTransaction.setTransferToAccount(toAccountNumber);
+                
+                Transaction creditTransaction = new Transaction(
+                    toAccountNumber,
+                    Transaction.TransactionType.TRANSFER_IN,
+                    paise,
+                    toBalance,
+                    transferDescription + " - Transfer from " + fromAccountNumber
+                );
+                
+                record = new WriteAheadLog.Record()
+                        .setBalance(fromAccountNumber, fromBalance)
+                        .setBalance(toAccountNumber, toBalance)
+                        .addTransaction(debitTransaction)
+                        .addTransaction(creditTransaction);
+                lsn = logAndApply(record);
+            } finally {
+                accountLocks.unlockPair(fromAccountNumber, toAccountNumber);
+            }
+            if (!awaitCommit(lsn, record)) return false;
+        } finally {
+            checkpointLock.readLock().unlock();
         }
-        
-        return false;
+        checkpointIfDue();
+        return true;
+    }
+
+    /**
+     * Asynchronous {@link #transfer}: returns at once and completes, on a
+     * pipeline thread, once the transfer is rejected or on disk. Transfers are
+     * applied in submission order. See {@link TransferPipeline}.
+     */
+    public CompletableFuture<TransferResult> transferAsync(String fromAccountNumber, String toAccountNumber,
+                                                           Money amount, String description) {
+        return getTransferPipeline().submit(fromAccountNumber, toAccountNumber, amount, description);
+    }
+    
+    public TransferPipeline getTransferPipeline() {
+        TransferPipeline pipeline = transferPipeline;
+        if (pipeline == null) {
+            synchronized (pipelineLock) {
+                pipeline = transferPipeline;
+                if (pipeline == null) {
+                    pipeline = new TransferPipeline(this);
+                    transferPipeline = pipeline;
+                }
+            }
+        }
+        return pipeline;
+    }
+    
+    /**
+     * Lets transfers already submitted to the pipeline finish, then
+     * checkpoints so the next start has no log to replay. If plaintext PINs
+     * were migrated, the snapshot is rewritten in full first: backends with
+     * in-place updates would keep the replaced values in the table's string
+     * area, and a delta would leave them in the base snapshot until the next
+     * compaction.
+     */
+    public void close() {
+        TransferPipeline pipeline;
+        synchronized (pipelineLock) {
+            pipeline = transferPipeline;
+        }
+        if (pipeline != null) {
+            pipeline.close();
+        }
+        pinAuthenticator.close();
+        if (plaintextPinsReplaced) {
+            checkpointLock.writeLock().lock();
+            try {
+                saveAccounts();
+            } finally {
+                checkpointLock.writeLock().unlock();
+            }
+        }
+        checkpoint();
     }
     
+    public PostingReport postBatch(Stream<PostingInstruction> instructions) {
+        return postBatch(instructions.collect(Collectors.toList()));
+    }
+
+    /**
+     * Posts a batch of deposits, withdrawals and transfers. Instructions are
+     * applied in the order given, so each account sees its postings in order
+     * and every debit is checked with canWithdraw against the balance left by
+     * the ones before it. A rejected instruction has no effect and does not
+     * stop the batch.
+     *
+     * The batch holds the checkpoint write lock rather than per-account locks,
+     * logs POSTINGS_PER_RECORD instructions per write-ahead log record, and
+     * waits for one group commit covering all of them. Each record is atomic;
+     * after a crash, recovery restores a prefix of the batch made of whole records.
+     */
+    public PostingReport postBatch(List<PostingInstruction> instructions) {
+        long started = System.currentTimeMillis();
+        int size = instructions.size();
+        int idCount = 0;
+        for (PostingInstruction instruction : instructions) {
+            idCount += instruction.getType() == PostingInstruction.Type.TRANSFER ? 2 : 1;
+        }
+        long[] ids = new long[idCount];
+        IdGenerators.transactions().nextIds(ids);
+
+        PostingResult[] results = new PostingResult[size];
+        List<WriteAheadLog.Record> records = new ArrayList<>();
+        List<Long> lsns = new ArrayList<>();
+        // First instruction of each logged record, plus the end of the last one
+        List<Integer> recordStarts = new ArrayList<>();
+        int posted = 0;
+        boolean committed = true;
+
+        checkpointLock.writeLock().lock();
+        try {
+            WriteAheadLog.Record record = new WriteAheadLog.Record();
+            int recordStart = 0;
+            int nextId = 0;
+            for (int i = 0; i < size; i++) {
+                PostingInstruction instruction = instructions.get(i);
+                boolean isTransfer = instruction.getType() == PostingInstruction.Type.TRANSFER;
+                String transactionId = "TXN" + ids[nextId];
+                PostingResult.Status status = stagePosting(instruction, record, transactionId,
+                        isTransfer ? ids[nextId + 1] : 0L);
+                results[i] = new PostingResult(instruction, status,
+                        status == PostingResult.Status.POSTED ? transactionId : null);
+                nextId += isTransfer ? 2 : 1;
+                if (status == PostingResult.Status.POSTED) {
+                    posted++;
+                }
+
+                if (i + 1 - recordStart < POSTINGS_PER_RECORD && i + 1 < size) {
+                    continue;
+                }
+                if (!record.getTransactions().isEmpty()) {
+                    long lsn = logAndApply(record);
+                    if (lsn < 0) {
+                        // Nothing from this record on was applied
+                        for (int j = recordStart; j < size; j++) {
+                            if (j <= i && results[j].isPosted()) {
+                                posted--;
+                            }
+                            results[j] = new PostingResult(instructions.get(j), PostingResult.Status.NOT_LOGGED, null);
+                        }
+                        committed = false;
+                        break;
+                    }
+                    records.add(record);
+                    lsns.add(lsn);
+                    recordStarts.add(recordStart);
+                }
+                record = new WriteAheadLog.Record();
+                recordStart = i + 1;
+            }
+            recordStarts.add(recordStart);
+
+            for (int r = 0; r < records.size(); r++) {
+                if (awaitCommit(lsns.get(r), records.get(r))) {
+                    continue;
+                }
+                // Rolled back: none of this record's postings happened
+                for (int j = recordStarts.get(r); j < recordStarts.get(r + 1); j++) {
+                    if (results[j].isPosted()) {
+                        posted--;
+                        results[j] = new PostingResult(instructions.get(j), PostingResult.Status.NOT_LOGGED, null);
+                    }
+                }
+                committed = false;
+            }
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+        checkpointIfDue();
+
+        return new PostingReport(Arrays.asList(results), posted, committed,
+                System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Checks one instruction against the balances as of the previous
+     * instructions (the pending record's, else the account's) and, if it
+     * passes, adds its balances and transactions to the record. A transfer's
+     * credit side gets id {@code creditId}.
+     */
+    private PostingResult.Status stagePosting(PostingInstruction instruction, WriteAheadLog.Record record,
+                                              String transactionId, long creditId) {
+        if (!ValidationUtils.isValidAmount(instruction.getAmount())) {
+            return PostingResult.Status.INVALID_AMOUNT;
+        }
+        long paise = instruction.getAmount().getMinorUnits();
+        Account account = getAccountByNumber(instruction.getAccountNumber());
+        if (account == null) {
+            return PostingResult.Status.ACCOUNT_NOT_FOUND;
+        }
+        if (!account.isActive()) {
+            return PostingResult.Status.ACCOUNT_INACTIVE;
+        }
+        String accountNumber = account.getAccountNumber();
+        long balance = pendingBalance(record, account);
+
+        switch (instruction.getType()) {
+            case DEPOSIT: {
+                if (balance > Long.MAX_VALUE - paise) {
+                    return PostingResult.Status.INVALID_AMOUNT;
+                }
+                long newBalance = balance + paise;
+                record.setBalance(accountNumber, newBalance)
+                        .addTransaction(new Transaction(transactionId, accountNumber,
+                                Transaction.TransactionType.DEPOSIT, paise, newBalance,
+                                instruction.getDescription() != null ? instruction.getDescription() : "Cash deposit"));
+                return PostingResult.Status.POSTED;
+            }
+            case WITHDRAWAL: {
+                if (!ValidationUtils.canWithdraw(paise, balance)) {
+                    return PostingResult.Status.INSUFFICIENT_FUNDS;
+                }
+                long newBalance = balance - paise;
+                record.setBalance(accountNumber, newBalance)
+                        .addTransaction(new Transaction(transactionId, accountNumber,
+                                Transaction.TransactionType.WITHDRAWAL, paise, newBalance,
+                                instruction.getDescription() != null ? instruction.getDescription() : "Cash withdrawal"));
+                return PostingResult.Status.POSTED;
+            }
+            default: {
+                String toAccountNumber = instruction.getToAccountNumber();
+                if (accountNumber.equals(toAccountNumber)) {
+                    return PostingResult.Status.SAME_ACCOUNT;
+                }
+                Account toAccount = getAccountByNumber(toAccountNumber);
+                if (toAccount == null) {
+                    return PostingResult.Status.ACCOUNT_NOT_FOUND;
+                }
+                if (!toAccount.isActive()) {
+                    return PostingResult.Status.ACCOUNT_INACTIVE;
+                }
+                if (!ValidationUtils.canWithdraw(paise, balance)) {
+                    return PostingResult.Status.INSUFFICIENT_FUNDS;
+                }
+                long toBalance = pendingBalance(record, toAccount);
+                if (toBalance > Long.MAX_VALUE - paise) {
+                    return PostingResult.Status.INVALID_AMOUNT;
+                }
+                long fromBalance = balance - paise;
+                toBalance += paise;
+                String transferDescription = instruction.getDescription() != null
+                        ? instruction.getDescription() : "Transfer between accounts";
+
+                Transaction debitTransaction = new Transaction(transactionId, accountNumber,
+                        Transaction.TransactionType.TRANSFER_OUT, paise, fromBalance,
+                        transferDescription + " - Transfer to " + toAccountNumber);
+                debitTransaction.setTransferToAccount(toAccountNumber);
+                Transaction creditTransaction = new Transaction("TXN" + creditId, toAccountNumber,
+                        Transaction.TransactionType.TRANSFER_IN, paise, toBalance,
+                        transferDescription + " - Transfer from " + accountNumber);
+                record.setBalance(accountNumber, fromBalance)
+                        .setBalance(toAccountNumber, toBalance)
+                        .addTransaction(debitTransaction)
+                        .addTransaction(creditTransaction);
+                return PostingResult.Status.POSTED;
+            }
+        }
+    }
+
+    // Balance after the postings already staged in the record
+    private static long pendingBalance(WriteAheadLog.Record record, Account account) {
+        Long pending = record.getBalances().get(account.getAccountNumber());
+        return pending != null ? pending : account.getBalanceMinor();
+    }
+
     public boolean changePin(String accountNumber, String oldPin, String newPin) {
         if (!ValidationUtils.isValidPin(newPin)) return false;
         
         Account account = authenticateUser(accountNumber, oldPin);
         if (account == null) return false;
         
-        account.setPin(newPin);
-        return saveAccounts();
+        String pinHash = pinAuthenticator.hash(newPin);
+        if (pinHash == null) return false;
+        synchronized (account) {
+            plaintextPinsReplaced |= account.getPin() != null;
+            account.setPinHash(pinHash);
+        }
+        pinAuthenticator.invalidate(accountNumber);
+        return persistAccount(account) && checkpoint();
+    }
+    
+    public boolean updateContactDetails(String accountNumber, String email, String phoneNumber) {
+        if (!ValidationUtils.isValidEmail(email) || !ValidationUtils.isValidPhoneNumber(phoneNumber)) {
+            return false;
+        }
+        
+        Account account = getAccountByNumber(accountNumber);
+        if (account == null) return false;
+        
+        String oldEmail = account.getEmail();
+        String oldPhone = account.getPhoneNumber();
+        account.setEmail(ValidationUtils.sanitizeInput(email));
+        account.setPhoneNumber(ValidationUtils.sanitizeInput(phoneNumber));
+        try {
+            accounts.update(account);
+        } catch (IllegalArgumentException e) {
+            account.setEmail(oldEmail);
+            account.setPhoneNumber(oldPhone);
+            return false;
+        }
+        return persistAccount(account) && checkpoint();
     }
     
     public Account getAccountByNumber(String accountNumber) {
-        return accounts.stream()
-                .filter(account -> account.getAccountNumber().equals(accountNumber))
-                .findFirst()
-                .orElse(null);
+        return accounts.findByNumber(accountNumber);
+    }
+    
+    public List<Account> getAllAccounts() {
+        return accounts.findAll();
+    }
+    
+    public TransactionService getTransactionService() {
+        return transactionService;
+    }
+    
+    public PinAuthenticator getPinAuthenticator() {
+        return pinAuthenticator;
+    }
+    
+    public LoginThrottle getLoginThrottle() {
+        return loginThrottle;
     }
     
     public boolean isEmailExists(String email) {
-        return accounts.stream()
-                .anyMatch(account -> account.getEmail().equalsIgnoreCase(email.trim()));
+        return accounts.containsEmail(email);
     }
     
     public boolean isPhoneExists(String phoneNumber) {
-        return accounts.stream()
-                .anyMatch(account -> account.getPhoneNumber().equals(phoneNumber.trim()));
+        return accounts.containsPhone(phoneNumber);
+    }
+    
+    /**
+     * Appends one balance mutation to the write-ahead log and applies it in
+     * memory. Callers hold the checkpoint read lock and the locks of the
+     * accounts involved. Returns the log sequence number to wait on, or -1 if
+     * the log could not be written.
+     */
+    private long logAndApply(WriteAheadLog.Record record) {
+        try {
+            long lsn = writeAheadLog.append(record);
+            applyLogRecord(record, false);
+            return lsn;
+        } catch (IOException e) {
+            LOG.error("Error writing to write-ahead log: {}", e.getMessage());
+            return -1;
+        }
+    }
+    
+    /**
+     * Waits for the group commit that covers the given record, then writes its
+     * balances (for backends with in-place updates) and journals its
+     * transactions. Callers still hold the checkpoint read lock, so a checkpoint
+     * never truncates a record whose effects are not on disk yet. If the log
+     * cannot be synced the record is rolled back and false returned.
+     */
+    private boolean awaitCommit(long lsn, WriteAheadLog.Record record) {
+        if (lsn < 0) return false;
+        if (!awaitDurable(lsn)) {
+            rollBack(record);
+            return false;
+        }
+        writeThrough(lsn, record);
+        return true;
+    }
+    
+    boolean awaitDurable(long lsn) {
+        if (lsn < 0) return false;
+        try {
+            writeAheadLog.awaitDurable(lsn);
+            return true;
+        } catch (IOException e) {
+            LOG.error("Error syncing write-ahead log: {}", e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Writes the effects of a durable log record to the account storage and the
+     * transaction journal. The record counts as committed either way; if the
+     * storage or the journal cannot take them, the log is kept until a restart
+     * replays it.
+     */
+    void writeThrough(long lsn, WriteAheadLog.Record record) {
+        if (!record.getOpenedAccounts().isEmpty() && !persistAccounts(record.getOpenedAccounts())) {
+            writeThroughBehind = true;
+        }
+        if (storage.supportsRecordUpdates()) {
+            // The log sequence number orders writes racing for the same account
+            for (Map.Entry<String, Long> entry : record.getBalances().entrySet()) {
+                storage.updateBalance(entry.getKey(), entry.getValue(), lsn, accountsFile);
+            }
+        }
+        if (!transactionService.journalTransactions(record.getTransactions())) {
+            writeThroughBehind = true;
+        }
+    }
+    
+    /**
+     * Undoes a logged record whose sync failed, so an operation reported as
+     * failed never reaches a checkpoint: takes its transactions' amounts back
+     * off the balances, drops the rows from the index and removes the accounts
+     * it opened. Callers hold the
+     * checkpoint lock, or keep an asynchronous transfer in flight, which holds
+     * off checkpoints as well. A failed log rejects everything after (see
+     * WriteAheadLog), so all later records are undone too and the reverse
+     * amounts can be applied in any order.
+     */
+    void rollBack(WriteAheadLog.Record record) {
+        for (Transaction transaction : record.getTransactions()) {
+            Account account = accounts.findByNumber(transaction.getAccountNumber());
+            if (account == null) {
+                continue;
+            }
+            long amount = transaction.getAmountMinor();
+            boolean credit = transaction.getType() == Transaction.TransactionType.DEPOSIT
+                    || transaction.getType() == Transaction.TransactionType.TRANSFER_IN;
+            accountLocks.lock(account.getAccountNumber());
+            try {
+                account.setBalanceMinor(account.getBalanceMinor() + (credit ? -amount : amount));
+                markChanged(account);
+            } finally {
+                accountLocks.unlock(account.getAccountNumber());
+            }
+        }
+        transactionService.unindexTransactions(record.getTransactions());
+        for (Account account : record.getOpenedAccounts()) {
+            accounts.remove(account.getAccountNumber());
+            changedAccounts.remove(account);
+        }
+        LOG.warn("Rolled back {} transactions whose write-ahead log record could not be synced",
+                record.getTransactions().size());
+    }
+    
+    /**
+     * Reserve step of an asynchronous transfer: checks it under the account
+     * locks and, if it passes, logs it and applies it in memory like
+     * {@link #transfer}. A logged ticket stays in flight, holding off
+     * checkpoints, until {@link #finishAsync()} is called after its write-through.
+     */
+    void reserveTransfer(TransferPipeline.Ticket ticket) {
+        PostingInstruction instruction = ticket.instruction;
+        String from = instruction.getAccountNumber();
+        String to = instruction.getToAccountNumber();
+        checkpointLock.readLock().lock();
+        try {
+            accountLocks.lockPair(from, to);
+            try {
+                WriteAheadLog.Record record = new WriteAheadLog.Record();
+                ticket.status = stagePosting(instruction, record, "TXN" + ticket.ids[0], ticket.ids[1]);
+                if (ticket.status != PostingResult.Status.POSTED) {
+                    return;
+                }
+                long lsn = logAndApply(record);
+                if (lsn < 0) {
+                    ticket.status = PostingResult.Status.NOT_LOGGED;
+                    return;
+                }
+                ticket.record = record;
+                ticket.lsn = lsn;
+                synchronized (asyncMonitor) {
+                    asyncInFlight++;
+                }
+            } finally {
+                accountLocks.unlockPair(from, to);
+            }
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+    }
+    
+    void finishAsync() {
+        synchronized (asyncMonitor) {
+            asyncInFlight--;
+            asyncMonitor.notifyAll();
+        }
+    }
+    
+    // Called with the checkpoint write lock held, so nothing new can be logged meanwhile
+    private void awaitAsyncWriteThrough() {
+        boolean interrupted = false;
+        synchronized (asyncMonitor) {
+            while (asyncInFlight > 0) {
+                try {
+                    asyncMonitor.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    void checkpointIfDue() {
+        if (writeAheadLog.getRecordsSinceCheckpoint() >= CHECKPOINT_RECORDS
+                && checkpointRunning.compareAndSet(false, true)) {
+            try {
+                checkpoint();
+            } finally {
+                checkpointRunning.set(false);
+            }
+        }
+    }
+    
+    private void applyLogRecord(WriteAheadLog.Record record, boolean replay) {
+        if (replay) {
+            // Live callers add the accounts themselves, before logging, to claim email and phone
+            for (Account account : record.getOpenedAccounts()) {
+                if (accounts.findByNumber(account.getAccountNumber()) == null) {
+                    try {
+                        accounts.add(account);
+                    } catch (IllegalArgumentException e) {
+                        LOG.warn("Not recovering account {}: {}", account.getAccountNumber(), e.getMessage());
+                    }
+                }
+            }
+        }
+        for (Map.Entry<String, Long> entry : record.getBalances().entrySet()) {
+            Account account = accounts.findByNumber(entry.getKey());
+            if (account != null) {
+                account.setBalanceMinor(entry.getValue());
+                markChanged(account);
+            }
+        }
+        if (!replay) {
+            transactionService.indexTransactions(record.getTransactions());
+            return;
+        }
+        for (Transaction transaction : record.getTransactions()) {
+            if (!transactionService.hasTransaction(transaction)) {
+                transactionService.recordTransaction(transaction);
+            }
+        }
+    }
+    
+    /**
+     * Writes the accounts changed since the last checkpoint (or syncs the
+     * in-place updates of backends that support them), syncs the transaction
+     * journal and resets the write-ahead log, whose records are then all
+     * reflected on disk.
+     */
+    public boolean checkpoint() {
+        checkpointLock.writeLock().lock();
+        long start = System.nanoTime();
+        try {
+            awaitAsyncWriteThrough();
+            boolean accountsSaved = storage.supportsRecordUpdates() ? storage.sync(accountsFile) : saveChangedAccounts();
+            if (!transactionService.sync() || !accountsSaved) {
+                return false;
+            }
+            if (writeThroughBehind) {
+                LOG.error("Keeping the write-ahead log: some of its records are not written through yet");
+                return false;
+            }
+            writeAheadLog.truncate();
+            return true;
+        } catch (IOException e) {
+            LOG.error("Error truncating write-ahead log: {}", e.getMessage());
+            return false;
+        } finally {
+            CHECKPOINT_LATENCY.record(System.nanoTime() - start);
+            checkpointLock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Replays records left in the write-ahead log by a previous run that did not
+     * reach a checkpoint. Balances are absolute and transactions already in the
+     * journal are skipped, so replaying twice is harmless. A log that cannot
+     * be read fails construction: a checkpoint would otherwise truncate it and
+     * lose the committed operations it holds.
+     */
+    private void recoverFromLog() {
+        List<WriteAheadLog.Record> records;
+        try {
+            records = writeAheadLog.readAll();
+        } catch (IOException e) {
+            throw new IllegalStateException("Write-ahead log cannot be read: " + e.getMessage(), e);
+        }
+        if (records.isEmpty()) {
+            return;
+        }
+        
+        for (WriteAheadLog.Record record : records) {
+            applyLogRecord(record, true);
+        }
+        LOG.info("Recovered {} operations from write-ahead log", records.size());
+        if (storage.supportsRecordUpdates()) {
+            // Recovered balances only exist in memory; write the table out in full
+            saveAccounts();
+        }
+        checkpoint();
     }
     
-    private void loadAccounts() {
-        accounts = fileManager.loadAccounts(ACCOUNTS_FILE);
-        if (accounts == null) {
-            accounts = new ArrayList<>();
+    private void loadAccounts(String dataDirectory) {
+        File legacyFile = new File(dataDirectory, ACCOUNTS_FILE);
+        if (!new File(accountsFile).exists() && !legacyFile.getPath().equals(accountsFile) && legacyFile.exists()) {
+            // First start on a new backend: import the serialized snapshot
+            List<Account> imported = new FileManager().loadAccounts(legacyFile.getPath());
+            if (storage.saveAccounts(imported, accountsFile)) {
+                LOG.info("Imported {} accounts into {}", imported.size(), accountsFile);
+            }
         }
+        
+        long start = System.nanoTime();
+        List<Account> loaded = storage.loadAccounts(accountsFile);
+        STORE_LOAD_LATENCY.record(System.nanoTime() - start);
+        accounts = AccountRepository.of(loaded != null ? loaded : new ArrayList<>());
     }
     
     private boolean saveAccounts() {
-        return fileManager.saveAccounts(accounts, ACCOUNTS_FILE);
+        List<Account> changed = cleanChangedAccounts();
+        long start = System.nanoTime();
+        boolean saved = storage.saveAccounts(accounts.findAll(), accountsFile);
+        STORE_SAVE_LATENCY.record(System.nanoTime() - start);
+        if (saved) {
+            long bytes = storage.sizeOnDisk(accountsFile);
+            STORE_SAVE_BYTES.record(bytes);
+            STORE_BYTES_WRITTEN.add(bytes);
+            forgetChangedAccounts(changed);
+        }
+        return saved;
+    }
+    
+    /**
+     * Writes only the accounts changed since the last checkpoint as a delta,
+     * so the cost follows the number of changes rather than the number of
+     * accounts. Falls back to a full save, which also folds the deltas in,
+     * when the backend has no deltas or asks for compaction.
+     */
+    private boolean saveChangedAccounts() {
+        if (!storage.supportsDeltas() || storage.needsCompaction(accountsFile)) {
+            return saveAccounts();
+        }
+        if (changedAccounts.isEmpty()) {
+            return true;
+        }
+        List<Account> changed = cleanChangedAccounts();
+        long sizeBefore = storage.sizeOnDisk(accountsFile);
+        long start = System.nanoTime();
+        boolean saved = storage.saveDelta(changed, accountsFile);
+        STORE_DELTA_LATENCY.record(System.nanoTime() - start);
+        if (saved) {
+            long bytes = storage.sizeOnDisk(accountsFile) - sizeBefore;
+            STORE_DELTA_BYTES.record(bytes);
+            STORE_BYTES_WRITTEN.add(bytes);
+            forgetChangedAccounts(changed);
+        }
+        return saved;
+    }
+    
+    // Clears the dirty marks before the accounts are written, so a change
+    // made while they are being written marks them again
+    private List<Account> cleanChangedAccounts() {
+        List<Account> changed = new ArrayList<>(changedAccounts);
+        for (Account account : changed) {
+            account.markClean();
+        }
+        return changed;
+    }
+    
+    // After a successful save; accounts changed again meanwhile stay for the next one
+    private void forgetChangedAccounts(List<Account> saved) {
+        for (Account account : saved) {
+            changedAccounts.remove(account);
+            if (account.isDirty()) {
+                changedAccounts.add(account);
+            }
+        }
+    }
+    
+    private void markChanged(Account account) {
+        if (storage.supportsDeltas()) {
+            changedAccounts.add(account);
+        }
+    }
+    
+    /**
+     * Publishes this service's sizes and security counters. A later service
+     * in the same process takes the names over.
+     */
+    private void registerGauges() {
+        Metrics.gauge("accounts.count", () -> accounts.size());
+        Metrics.gauge("accounts.store.bytes", () -> storage.sizeOnDisk(accountsFile));
+        Metrics.gauge("transactions.count", transactionService::getTransactionCount);
+        Metrics.gauge("transactions.journal.bytes", transactionService::getJournalBytes);
+        Metrics.gauge("wal.bytes", writeAheadLog::length);
+        Metrics.gauge("wal.recordsSinceCheckpoint", writeAheadLog::getRecordsSinceCheckpoint);
+        Metrics.gauge("transfer.inFlight", () -> transferPipeline != null ? transferPipeline.getInFlight() : 0);
+        Metrics.gauge("pin.sessionHits", pinAuthenticator::getSessionHits);
+        Metrics.gauge("pin.failures", pinAuthenticator::getFailures);
+        Metrics.gauge("pin.rejections", pinAuthenticator::getRejections);
+        Metrics.gauge("login.throttled", loginThrottle::getThrottled);
+        Metrics.gauge("login.failures", loginThrottle::getFailures);
+    }
+    
+    /**
+     * Writes one account's record for backends with in-place updates; the
+     * serialized snapshot picks the change up at the next checkpoint instead.
+     */
+    private boolean persistAccount(Account account) {
+        if (!storage.supportsRecordUpdates()) {
+            markChanged(account);
+            return true;
+        }
+        return storage.updateAccount(account, accountsFile);
+    }
+    
+    private boolean persistAccounts(List<Account> batch) {
+        if (!storage.supportsRecordUpdates()) {
+            batch.forEach(this::markChanged);
+            return true;
+        }
+        return storage.updateAccounts(batch, accountsFile);
     }
 }
\ No newline at end of file
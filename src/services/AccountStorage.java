@@ -0,0 +1,112 @@
+package services;
+
+import models.Account;
+import java.io.File;
+import java.util.List;
+
+/**
+ * Backend that persists the account snapshot.
+ *
+ * {@link FileManager} stores the whole list with Java serialization and can
+ * only rewrite it in full. Backends that return true from
+ * {@link #supportsRecordUpdates()} can also write a single account or a single
+ * balance in place, so checkpoints only need {@link #sync(String)}. Backends
+ * that support deltas write only the accounts changed since the last
+ * checkpoint, see {@link #saveDelta}.
+ *
+ * The backend is chosen with the {@code banking.storage} system property:
+ * {@code file} (default) or {@code mapped}.
+ */
+public interface AccountStorage {
+
+    /**
+     * File name (inside the data directory) this backend stores accounts in.
+     */
+    String getDefaultFileName();
+
+    List<Account> loadAccounts(String filename);
+
+    boolean saveAccounts(List<Account> accounts, String filename);
+
+    default boolean supportsRecordUpdates() {
+        return false;
+    }
+
+    /**
+     * Writes (or appends) the full record of one account.
+     */
+    default boolean updateAccount(Account account, String filename) {
+        throw new UnsupportedOperationException("Backend only supports full saves");
+    }
+
+    /**
+     * Writes (or appends) the full records of several accounts.
+     */
+    default boolean updateAccounts(List<Account> accounts, String filename) {
+        for (Account account : accounts) {
+            if (!updateAccount(account, filename)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes one balance in place. {@code version} increases with every change
+     * to the account; a write with an older version than the last one applied
+     * is ignored, so concurrent callers can never move a balance backwards.
+     */
+    default boolean updateBalance(String accountNumber, long balanceMinor, long version, String filename) {
+        throw new UnsupportedOperationException("Backend only supports full saves");
+    }
+
+    /**
+     * Whether {@link #saveDelta} is supported, so a checkpoint only has to
+     * write the accounts changed since the last one.
+     */
+    default boolean supportsDeltas() {
+        return false;
+    }
+
+    /**
+     * Persists changed accounts on top of the last full save. Loading applies
+     * the deltas after the snapshot, so a later delta wins.
+     */
+    default boolean saveDelta(List<Account> changed, String filename) {
+        throw new UnsupportedOperationException("Backend only supports full saves");
+    }
+
+    /**
+     * Whether enough deltas have built up that the next save should be a full
+     * one, which replaces them.
+     */
+    default boolean needsCompaction(String filename) {
+        return false;
+    }
+
+    /**
+     * Bytes the stored accounts take on disk.
+     */
+    default long sizeOnDisk(String filename) {
+        return new File(filename).length();
+    }
+
+    /**
+     * Forces record updates to the storage device.
+     */
+    default boolean sync(String filename) {
+        return true;
+    }
+
+    static AccountStorage fromSystemProperty() {
+        String backend = System.getProperty("banking.storage", "file");
+        switch (backend.toLowerCase()) {
+            case "file":
+                return new FileManager();
+            case "mapped":
+                return new MappedAccountStorage();
+            default:
+                throw new IllegalArgumentException("Unknown account storage backend: " + backend);
+        }
+    }
+}
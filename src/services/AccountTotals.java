@@ -0,0 +1,90 @@
+package services;
+
+import models.Transaction;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Running totals for one account in paise, per transaction type and per calendar month.
+ * Updated as each transaction is recorded so summaries are O(1).
+ * Methods synchronize on the instance, so each account has its own lock.
+ */
+public class AccountTotals {
+    private static final int TYPES = Transaction.TransactionType.values().length;
+
+    private final long[] amounts = new long[TYPES];
+    private final long[] counts = new long[TYPES];
+    private final Map<YearMonth, long[]> monthlyAmounts = new HashMap<>();
+    // Bucket of the month last added to and its [start, end) in epoch millis;
+    // transactions mostly arrive in time order, so this skips the calendar math
+    private long[] recentBucket;
+    private long recentStart;
+    private long recentEnd;
+
+    public synchronized void add(Transaction transaction) {
+        if (transaction.getType() == null) {
+            return;
+        }
+        int type = transaction.getType().ordinal();
+        amounts[type] += transaction.getAmountMinor();
+        counts[type]++;
+
+        if (transaction.getTimestamp() != null) {
+            bucketFor(transaction.getTimestamp().getTime())[type] += transaction.getAmountMinor();
+        }
+    }
+
+    /**
+     * Takes back a transaction added earlier, e.g. one whose commit failed.
+     */
+    public synchronized void remove(Transaction transaction) {
+        if (transaction.getType() == null) {
+            return;
+        }
+        int type = transaction.getType().ordinal();
+        amounts[type] -= transaction.getAmountMinor();
+        counts[type]--;
+
+        if (transaction.getTimestamp() != null) {
+            bucketFor(transaction.getTimestamp().getTime())[type] -= transaction.getAmountMinor();
+        }
+    }
+
+    private long[] bucketFor(long epochMillis) {
+        if (recentBucket != null && epochMillis >= recentStart && epochMillis < recentEnd) {
+            return recentBucket;
+        }
+        ZoneId zone = ZoneId.systemDefault();
+        YearMonth month = YearMonth.from(Instant.ofEpochMilli(epochMillis).atZone(zone));
+        recentBucket = monthlyAmounts.computeIfAbsent(month, k -> new long[TYPES]);
+        recentStart = month.atDay(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        recentEnd = month.plusMonths(1).atDay(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        return recentBucket;
+    }
+
+    public synchronized long getAmount(Transaction.TransactionType type) {
+        return amounts[type.ordinal()];
+    }
+
+    public synchronized long getCount(Transaction.TransactionType type) {
+        return counts[type.ordinal()];
+    }
+
+    public synchronized long getMonthlyAmount(Transaction.TransactionType type, YearMonth month) {
+        long[] bucket = monthlyAmounts.get(month);
+        return bucket != null ? bucket[type.ordinal()] : 0L;
+    }
+
+    public synchronized long getTotalCredited() {
+        return getAmount(Transaction.TransactionType.DEPOSIT) 
+                + getAmount(Transaction.TransactionType.TRANSFER_IN);
+    }
+
+    public synchronized long getTotalDebited() {
+        return getAmount(Transaction.TransactionType.WITHDRAWAL) 
+                + getAmount(Transaction.TransactionType.TRANSFER_OUT);
+    }
+}
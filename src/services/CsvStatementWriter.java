@@ -0,0 +1,125 @@
+package services;
+
+import models.Money;
+import models.Transaction;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import utils.DateUtils;
+
+/**
+ * Writes transaction rows as CSV straight into a large buffer that is drained
+ * to a file channel. Rows are encoded by hand (amounts via
+ * {@link Money#appendAmount}, timestamps via {@link DateUtils#appendDateTime}) into one
+ * reused StringBuilder, so writing a row allocates nothing. Not thread-safe.
+ */
+public class CsvStatementWriter implements Closeable {
+    public static final String HEADER =
+            "Transaction ID,Account Number,Type,Amount,Balance After,Timestamp,Description,Status";
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final StringBuilder row = new StringBuilder(256);
+
+    public CsvStatementWriter(String filename) throws IOException {
+        this(filename, ByteBuffer.allocateDirect(BUFFER_SIZE));
+    }
+
+    /**
+     * Writes through a caller-owned buffer, so a worker exporting many files
+     * can reuse one. The buffer must have room for at least 4 bytes.
+     */
+    public CsvStatementWriter(String filename, ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        buffer.clear();
+        channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    public void writeHeader() throws IOException {
+        row.setLength(0);
+        row.append(HEADER).append(LINE_SEPARATOR);
+        encode(row);
+    }
+
+    public void write(Transaction transaction) throws IOException {
+        row.setLength(0);
+        row.append(transaction.getTransactionId()).append(',')
+           .append(transaction.getAccountNumber()).append(',');
+        if (transaction.getType() != null) {
+            row.append(transaction.getType().getDisplayName());
+        }
+        row.append(',');
+        Money.appendAmount(row, transaction.getAmountMinor()).append(',');
+        Money.appendAmount(row, transaction.getBalanceAfterMinor()).append(',');
+        if (transaction.getTimestamp() != null) {
+            DateUtils.appendDateTime(row, transaction.getTimestamp().getTime());
+        }
+        row.append(",\"");
+        String description = transaction.getDescription();
+        if (description != null) {
+            for (int i = 0; i < description.length(); i++) {
+                char c = description.charAt(i);
+                if (c == '"') {
+                    row.append('"');
+                }
+                row.append(c);
+            }
+        }
+        row.append("\",").append(transaction.getStatus()).append(LINE_SEPARATOR);
+        encode(row);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    // UTF-8 encodes the row into the buffer, draining it to the channel as it fills
+    private void encode(CharSequence text) throws IOException {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            if (buffer.remaining() < 4) {
+                drain();
+            }
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
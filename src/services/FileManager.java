@@ -2,62 +2,284 @@ package services;
 
 import models.Account;
 import models.Transaction;
+import utils.Log;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.text.SimpleDateFormat;
+import java.util.Map;
 
-public class FileManager {
-    
-    private static final String DATA_DIRECTORY = "data";
-    
-    private void createDataDirectoryIfNotExists() {
-        File directory = new File(DATA_DIRECTORY);
-        if (!directory.exists()) {
+public class FileManager implements AccountStorage {
+
+    private static final Log LOG = Log.get(FileManager.class);
+
+    private static final String DEFAULT_ACCOUNTS_FILE = "accounts.dat";
+    private static final String DELTA_SUFFIX = ".delta.";
+    private static final int MAX_DELTAS = Integer.getInteger("banking.snapshot.maxDeltas", 32);
+
+    private static final class DeltaState {
+        final String filename;
+        long lastSequence;
+        int deltaCount;
+        long deltaBytes;
+        long baseBytes;
+
+        DeltaState(String filename) {
+            this.filename = filename;
+        }
+    }
+
+    private DeltaState deltaState;
+
+    @Override
+    public String getDefaultFileName() {
+        return DEFAULT_ACCOUNTS_FILE;
+    }
+
+    private void createDataDirectoryIfNotExists(String filename) {
+        File directory = new File(filename).getAbsoluteFile().getParentFile();
+        if (directory != null && !directory.exists()) {
             directory.mkdirs();
         }
     }
     
-    public boolean saveAccounts(List<Account> accounts, String filename) {
-        createDataDirectoryIfNotExists();
+    @Override
+    public synchronized boolean saveAccounts(List<Account> accounts, String filename) {
+        createDataDirectoryIfNotExists(filename);
         
-        System.out.println("DEBUG: Saving " + accounts.size() + " accounts to " + filename);
+        LOG.debug("Saving {} accounts to {}", accounts.size(), filename);
+        DeltaState state = deltaState(filename);
+        long covered = state.lastSequence;
         
-        try (FileOutputStream fos = new FileOutputStream(filename);
-             ObjectOutputStream oos = new ObjectOutputStream(fos)) {
+        // Write to a temporary file and rename, so a crash never leaves a half-written snapshot
+        File target = new File(filename);
+        File temp = new File(filename + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(temp);
+             ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(fos, 1 << 16))) {
             
             oos.writeObject(accounts);
-            System.out.println("DEBUG: Accounts saved successfully");
-            return true;
+            // Trailer: the deltas this snapshot already contains. Older versions stop reading before it
+            oos.writeLong(covered);
+            oos.flush();
+            fos.getFD().sync();
+            
+        } catch (IOException e) {
+            LOG.error("Error saving accounts to {}", filename, e);
+            return false;
+        }
+        
+        try {
+            Files.move(temp.toPath(), target.toPath(), 
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOG.debug("Accounts saved to {}", filename);
             
         } catch (IOException e) {
-            System.err.println("DEBUG: Error saving accounts: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error saving accounts to {}", filename, e);
             return false;
         }
+        
+        // Only now are the deltas redundant; a crash before this leaves them to be skipped on load
+        for (File delta : listDeltas(filename)) {
+            if (deltaSequence(delta, filename) <= covered) {
+                delta.delete();
+            }
+        }
+        state.baseBytes = target.length();
+        state.deltaCount = 0;
+        state.deltaBytes = 0;
+        return true;
     }
     
-    @SuppressWarnings("unchecked")
-    public List<Account> loadAccounts(String filename) {
+    /**
+     * Loads the snapshot, then applies the deltas written after it in order.
+     * A delta that cannot be read fails the load with an IllegalStateException:
+     * the write-ahead log behind it is already gone, so a full save from what
+     * could be read would overwrite committed balances for good.
+     */
+    @Override
+    public synchronized List<Account> loadAccounts(String filename) {
         File file = new File(filename);
+        Map<String, Account> loaded = new LinkedHashMap<>();
+        long covered = 0;
         
-        if (!file.exists()) {
-            return new ArrayList<>();
+        if (file.exists()) {
+            try (FileInputStream fis = new FileInputStream(filename);
+                 ObjectInputStream ois = new ObjectInputStream(fis)) {
+                
+                for (Account account : readAccounts(ois)) {
+                    loaded.put(account.getAccountNumber(), account);
+                }
+                try {
+                    covered = ois.readLong();
+                } catch (EOFException e) {
+                    // Written before incremental snapshots: no deltas are covered
+                }
+                
+            } catch (IOException | ClassNotFoundException e) {
+                LOG.error("Error loading accounts: {}", e.getMessage());
+                return new ArrayList<>();
+            }
         }
         
-        try (FileInputStream fis = new FileInputStream(filename);
-             ObjectInputStream ois = new ObjectInputStream(fis)) {
-            
-            return (List<Account>) ois.readObject();
-            
+        DeltaState state = new DeltaState(filename);
+        state.baseBytes = file.length();
+        state.lastSequence = covered;
+        for (File delta : listDeltas(filename)) {
+            long sequence = deltaSequence(delta, filename);
+            if (sequence <= covered) {
+                continue;
+            }
+            List<Account> changed;
+            try (ObjectInputStream ois = new ObjectInputStream(
+                    new BufferedInputStream(new FileInputStream(delta), 1 << 16))) {
+                changed = readAccounts(ois);
+            } catch (IOException | ClassNotFoundException e) {
+                throw new IllegalStateException("Account delta " + delta + " cannot be read: " + e, e);
+            }
+            for (Account account : changed) {
+                loaded.put(account.getAccountNumber(), account);
+            }
+            state.lastSequence = sequence;
+            state.deltaCount++;
+            state.deltaBytes += delta.length();
+        }
+        deltaState = state;
+        return new ArrayList<>(loaded.values());
+    }
+    
+    @Override
+    public boolean supportsDeltas() {
+        return true;
+    }
+    
+    /**
+     * Writes the changed accounts to the next delta file,
+     * {@code <filename>.delta.<sequence>}, through a temporary file so a
+     * crash never leaves a partial delta behind.
+     */
+    @Override
+    public synchronized boolean saveDelta(List<Account> changed, String filename) {
+        createDataDirectoryIfNotExists(filename);
+        DeltaState state = deltaState(filename);
+        long sequence = state.lastSequence + 1;
+        File target = new File(filename + DELTA_SUFFIX + sequence);
+        File temp = new File(target.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(temp);
+             ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(fos, 1 << 16))) {
+            oos.writeObject(new ArrayList<>(changed));
+            oos.flush();
+            fos.getFD().sync();
+        } catch (IOException e) {
+            LOG.error("Error saving account delta to {}: {}", target, e.getMessage());
+            temp.delete();
+            return false;
+        }
+        try {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.error("Error saving account delta to {}: {}", target, e.getMessage());
+            temp.delete();
+            return false;
+        }
+        LOG.debug("Saved {} changed accounts to {}", changed.size(), target);
+        state.lastSequence = sequence;
+        state.deltaCount++;
+        state.deltaBytes += target.length();
+        return true;
+    }
+    
+    /**
+     * Due once there are {@code banking.snapshot.maxDeltas} deltas (32) or
+     * they add up to half the size of the snapshot, which keeps both the
+     * number of files and the extra reading at startup bounded.
+     */
+    @Override
+    public synchronized boolean needsCompaction(String filename) {
+        DeltaState state = deltaState(filename);
+        return state.deltaCount >= MAX_DELTAS
+                || (state.deltaCount > 0 && state.deltaBytes * 2 >= state.baseBytes);
+    }
+    
+    /**
+     * The snapshot plus the deltas not yet folded into it.
+     */
+    @Override
+    public synchronized long sizeOnDisk(String filename) {
+        DeltaState state = deltaState(filename);
+        return state.baseBytes + state.deltaBytes;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static List<Account> readAccounts(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        return (List<Account>) in.readObject();
+    }
+    
+    // Delta bookkeeping for one snapshot file, rebuilt from the directory if
+    // the file was not loaded through this instance
+    private DeltaState deltaState(String filename) {
+        DeltaState state = deltaState;
+        if (state != null && state.filename.equals(filename)) {
+            return state;
+        }
+        state = new DeltaState(filename);
+        File file = new File(filename);
+        state.baseBytes = file.length();
+        long covered = readCoveredSequence(file);
+        state.lastSequence = covered;
+        for (File delta : listDeltas(filename)) {
+            long sequence = deltaSequence(delta, filename);
+            state.lastSequence = Math.max(state.lastSequence, sequence);
+            if (sequence > covered) {
+                state.deltaCount++;
+                state.deltaBytes += delta.length();
+            }
+        }
+        deltaState = state;
+        return state;
+    }
+    
+    private static long readCoveredSequence(File file) {
+        if (!file.exists()) {
+            return 0;
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(
+                new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            ois.readObject();
+            return ois.readLong();
         } catch (IOException | ClassNotFoundException e) {
-            System.err.println("Error loading accounts: " + e.getMessage());
-            return new ArrayList<>();
+            return 0;
+        }
+    }
+    
+    // Deltas of the snapshot, oldest first
+    private static List<File> listDeltas(String filename) {
+        File base = new File(filename).getAbsoluteFile();
+        String prefix = base.getName() + DELTA_SUFFIX;
+        File[] files = base.getParentFile() != null
+                ? base.getParentFile().listFiles((dir, name) -> name.startsWith(prefix)
+                        && name.length() > prefix.length()
+                        && name.substring(prefix.length()).chars().allMatch(Character::isDigit))
+                : null;
+        List<File> deltas = new ArrayList<>();
+        if (files != null) {
+            deltas.addAll(Arrays.asList(files));
+            deltas.sort(Comparator.comparingLong(delta -> deltaSequence(delta, filename)));
         }
+        return deltas;
     }
     
+    private static long deltaSequence(File delta, String filename) {
+        String prefix = new File(filename).getName() + DELTA_SUFFIX;
+        return Long.parseLong(delta.getName().substring(prefix.length()));
+    }
+
     public boolean saveTransactions(List<Transaction> transactions, String filename) {
-        createDataDirectoryIfNotExists();
+        createDataDirectoryIfNotExists(filename);
         
         try (FileOutputStream fos = new FileOutputStream(filename);
              ObjectOutputStream oos = new ObjectOutputStream(fos)) {
@@ -66,55 +288,80 @@ public class FileManager {
             return true;
             
         } catch (IOException e) {
-            System.err.println("Error saving transactions: " + e.getMessage());
+            LOG.error("Error saving transactions: {}", e.getMessage());
             return false;
         }
     }
     
-    @SuppressWarnings("unchecked")
     public List<Transaction> loadTransactions(String filename) {
-        File file = new File(filename);
-        
-        if (!file.exists()) {
+        if (!new File(filename).exists()) {
             return new ArrayList<>();
         }
         
+        try {
+            return readTransactions(filename);
+        } catch (IOException | ClassNotFoundException e) {
+            LOG.error("Error loading transactions: {}", e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static List<Transaction> readTransactions(String filename) throws IOException, ClassNotFoundException {
         try (FileInputStream fis = new FileInputStream(filename);
              ObjectInputStream ois = new ObjectInputStream(fis)) {
-            
             return (List<Transaction>) ois.readObject();
-            
+        }
+    }
+    
+    /**
+     * One-time conversion of a Java-serialized transactions file into the
+     * append-only journal format. The legacy file is kept as <name>.migrated.
+     * A legacy file that cannot be read is left alone and no journal is
+     * created, so the history is never replaced by an empty one.
+     */
+    public boolean migrateTransactionsToJournal(String legacyFilename, TransactionJournal journal) throws IOException {
+        File legacyFile = new File(legacyFilename);
+        if (!legacyFile.exists() || journal.exists()) {
+            return false;
+        }
+        
+        List<Transaction> transactions;
+        try {
+            transactions = readTransactions(legacyFilename);
         } catch (IOException | ClassNotFoundException e) {
-            System.err.println("Error loading transactions: " + e.getMessage());
-            return new ArrayList<>();
+            throw new IOException("Could not read " + legacyFilename + ": " + e.getMessage(), e);
+        }
+        journal.rewrite(transactions);
+        
+        File migrated = new File(legacyFilename + ".migrated");
+        if (!legacyFile.renameTo(migrated)) {
+            LOG.warn("Could not rename {} after migration", legacyFilename);
         }
+        LOG.info("Migrated {} transactions to journal", transactions.size());
+        return true;
     }
     
     public boolean exportTransactionsToCSV(List<Transaction> transactions, String filename) {
-        createDataDirectoryIfNotExists();
+        return exportTransactionsToCSV(transactions.iterator(), filename);
+    }
+    
+    /**
+     * Streams rows to a CSV file through a large buffer. Memory use does not
+     * depend on how many rows the iterator yields.
+     */
+    public boolean exportTransactionsToCSV(Iterator<Transaction> transactions, String filename) {
+        createDataDirectoryIfNotExists(filename);
         
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
-            writer.println("Transaction ID,Account Number,Type,Amount,Balance After,Timestamp,Description,Status");
-            
-            SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm:ss");
-            
-            for (Transaction transaction : transactions) {
-                writer.printf("%s,%s,%s,%.2f,%.2f,%s,\"%s\",%s%n",
-                    transaction.getTransactionId(),
-                    transaction.getAccountNumber(),
-                    transaction.getType().getDisplayName(),
-                    transaction.getAmount(),
-                    transaction.getBalanceAfter(),
-                    dateFormat.format(transaction.getTimestamp()),
-                    transaction.getDescription().replace("\"", "\"\""),
-                    transaction.getStatus()
-                );
+        try (CsvStatementWriter writer = new CsvStatementWriter(filename)) {
+            writer.writeHeader();
+            while (transactions.hasNext()) {
+                writer.write(transactions.next());
             }
-            
             return true;
             
         } catch (IOException e) {
-            System.err.println("Error exporting transactions to CSV: " + e.getMessage());
+            LOG.error("Error exporting transactions to CSV: {}", e.getMessage());
             return false;
         }
     }
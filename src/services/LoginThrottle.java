@@ -0,0 +1,208 @@
+package services;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits failed logins per account in a fixed amount of memory.
+ *
+ * Failures are counted in a count-min sketch: {@code depth} rows of
+ * {@code width} cells, each key hashing to one cell per row with per-process
+ * random seeds. A cell packs the index of the window it was last written in
+ * with its failure count in that window and in the one before, so the
+ * estimate slides: the previous window's failures fade out as the current
+ * window advances. A parallel array keeps the last failure time per cell.
+ * Every update is a CAS on one long, so the throttle never blocks.
+ *
+ * Collisions only ever add to a key's estimate, so an undersized sketch
+ * throttles too eagerly, never too little. Size {@code width} above the
+ * number of distinct accounts expected to fail logins within one window.
+ *
+ * After {@code freeAttempts} failures each further attempt must wait
+ * {@code baseDelay * 2^(failures - freeAttempts)} (capped) after the last
+ * failure; at {@code lockoutAttempts} the account is locked for
+ * {@code lockoutMillis}. The lock is this throttle's state, not
+ * Account.isActive, so it lifts by itself and is never written to disk.
+ */
+public class LoginThrottle {
+
+    private static final int DEPTH = 4;
+    private static final int COUNT_BITS = 16;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private final int width;
+    private final long windowMillis;
+    private final int freeAttempts;
+    private final int lockoutAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final long lockoutMillis;
+    private final LongSupplier clock;
+    private final long epoch;
+    private final long seed = new SecureRandom().nextLong();
+
+    // [window:32][previous count:16][current count:16]
+    private final AtomicLongArray cells;
+    private final AtomicLongArray lastFailures;
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * Configured from the {@code banking.login.*} system properties.
+     */
+    public LoginThrottle() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * Configured from the {@code banking.login.*} system properties, with the
+     * given clock in epoch milliseconds.
+     */
+    public LoginThrottle(LongSupplier clock) {
+        this(Integer.getInteger("banking.login.sketchWidth", 1 << 16),
+                Long.getLong("banking.login.windowMillis", 15 * 60_000L),
+                Integer.getInteger("banking.login.freeAttempts", 3),
+                Integer.getInteger("banking.login.lockoutAttempts", 10),
+                Long.getLong("banking.login.baseDelayMillis", 1000L),
+                Long.getLong("banking.login.maxDelayMillis", 60_000L),
+                Long.getLong("banking.login.lockoutMillis", 15 * 60_000L),
+                clock);
+    }
+
+    public LoginThrottle(int width, long windowMillis, int freeAttempts, int lockoutAttempts,
+                         long baseDelayMillis, long maxDelayMillis, long lockoutMillis, LongSupplier clock) {
+        if (width <= 0 || windowMillis <= 0 || freeAttempts < 0 || lockoutAttempts <= freeAttempts) {
+            throw new IllegalArgumentException("Invalid login throttle settings");
+        }
+        this.width = width;
+        this.windowMillis = windowMillis;
+        this.freeAttempts = freeAttempts;
+        this.lockoutAttempts = lockoutAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.lockoutMillis = lockoutMillis;
+        this.clock = clock;
+        this.epoch = clock.getAsLong();
+        this.cells = new AtomicLongArray(DEPTH * width);
+        this.lastFailures = new AtomicLongArray(DEPTH * width);
+    }
+
+    /**
+     * Milliseconds until {@code key} may try again; 0 if it may try now.
+     * Counts the attempt as throttled when it is not 0.
+     */
+    public long retryAfterMillis(String key) {
+        long now = clock.getAsLong();
+        long window = windowOf(now);
+        double elapsed = (double) ((now - epoch) % windowMillis) / windowMillis;
+        long hash = hash(key);
+
+        double estimate = Double.MAX_VALUE;
+        long lastFailure = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = indexOf(hash, row);
+            estimate = Math.min(estimate, estimate(cells.get(index), window, elapsed));
+            lastFailure = Math.min(lastFailure, lastFailures.get(index));
+        }
+
+        int recent = (int) Math.floor(estimate);
+        long wait;
+        if (recent >= lockoutAttempts) {
+            wait = lastFailure + lockoutMillis - now;
+        } else if (recent >= freeAttempts) {
+            int doublings = Math.min(recent - freeAttempts, 30);
+            wait = lastFailure + Math.min(maxDelayMillis, baseDelayMillis << doublings) - now;
+        } else {
+            wait = 0;
+        }
+        if (wait > 0) {
+            throttled.increment();
+            return wait;
+        }
+        return 0;
+    }
+
+    /**
+     * Counts a failed login for {@code key}.
+     */
+    public void recordFailure(String key) {
+        long now = clock.getAsLong();
+        long window = windowOf(now);
+        long hash = hash(key);
+        for (int row = 0; row < DEPTH; row++) {
+            int index = indexOf(hash, row);
+            cells.getAndUpdate(index, cell -> increment(cell, window));
+            lastFailures.getAndAccumulate(index, now, Math::max);
+        }
+        failures.increment();
+    }
+
+    /**
+     * Attempts turned away by {@link #retryAfterMillis}.
+     */
+    public long getThrottled() {
+        return throttled.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * Size of the sketch, fixed at construction.
+     */
+    public long getMemoryBytes() {
+        return 2L * DEPTH * width * Long.BYTES;
+    }
+
+    private long windowOf(long now) {
+        return Math.max(0, now - epoch) / windowMillis;
+    }
+
+    private static double estimate(long cell, long window, double elapsed) {
+        long cellWindow = cell >>> 32;
+        long current = cell & COUNT_MASK;
+        long previous = (cell >>> COUNT_BITS) & COUNT_MASK;
+        if (cellWindow == window) {
+            return current + previous * (1 - elapsed);
+        }
+        if (cellWindow + 1 == window) {
+            return current * (1 - elapsed);
+        }
+        return 0;
+    }
+
+    private static long increment(long cell, long window) {
+        long cellWindow = cell >>> 32;
+        long current = cell & COUNT_MASK;
+        long previous = (cell >>> COUNT_BITS) & COUNT_MASK;
+        if (cellWindow == window) {
+            current = Math.min(COUNT_MASK, current + 1);
+        } else {
+            previous = cellWindow + 1 == window ? current : 0;
+            current = 1;
+        }
+        return (window << 32) | (previous << COUNT_BITS) | current;
+    }
+
+    // Two seeded 64-bit hashes combined per row (Kirsch-Mitzenmacher)
+    private int indexOf(long hash, int row) {
+        long combined = hash + row * ((hash >>> 32) | 1);
+        return row * width + (int) Long.remainderUnsigned(combined, width);
+    }
+
+    private long hash(String key) {
+        long h = seed;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        // Final avalanche (splitmix64) so nearby keys spread over the rows
+        h ^= h >>> 30;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 27;
+        h *= 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+}
@@ -0,0 +1,656 @@
+package services;
+
+import models.Account;
+import utils.Log;
+import utils.Metrics;
+import utils.PinHasher;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Account storage backed by a memory-mapped table of fixed-width records.
+ *
+ * The table file holds a 64 byte header followed by one 64 byte record per
+ * account. Numeric fields sit at fixed offsets, so a balance change is a single
+ * 8 byte write into the mapped page, and loading reads fields straight out of
+ * the mapping instead of running Java deserialization. Strings live in a side
+ * file ({@code <table>.<generation>.str}) of [int length][UTF-8 bytes] entries
+ * padded to 8 bytes; records refer to them by offset / 8. A full save writes a
+ * fresh, compacted string file in which equal values share one entry.
+ *
+ * Record updates reach the disk on {@link #sync(String)}; the write-ahead log
+ * covers balance changes made in between.
+ */
+public class MappedAccountStorage implements AccountStorage, Closeable {
+
+    private static final Log LOG = Log.get(MappedAccountStorage.class);
+    // Shared with AccountService, which adds the full saves
+    private static final LongAdder BYTES_WRITTEN = Metrics.counter("accounts.store.bytesWritten");
+
+    private static final String DEFAULT_FILE_NAME = "accounts.tbl";
+    private static final int MAGIC = 0x42414354; // "BACT"
+    private static final int STRINGS_MAGIC = 0x42535452; // "BSTR"
+    private static final int VERSION = 1;
+
+    // Header fields
+    private static final int HEADER_SIZE = 64;
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_RECORD_SIZE = 8;
+    private static final int H_COUNT = 12;
+    private static final int H_GENERATION = 16;
+
+    // Record fields; string references are offsets into the string file / 8
+    private static final int RECORD_SIZE = 64;
+    private static final int R_BALANCE = 0;
+    private static final int R_CREATED = 8;
+    private static final int R_TYPE = 16;
+    private static final int R_FLAGS = 17;
+    private static final int R_NUMBER = 24;
+    private static final int R_NAME = 28;
+    private static final int R_PHONE = 32;
+    private static final int R_EMAIL = 36;
+    private static final int R_ADDRESS = 40;
+    private static final int R_PIN = 44;
+    private static final byte FLAG_ACTIVE = 1;
+
+    // The table is mapped in segments so it can grow without remapping everything
+    private static final int SEGMENT_SHIFT = 16;
+    private static final int SEGMENT_RECORDS = 1 << SEGMENT_SHIFT;
+    private static final long SEGMENT_BYTES = (long) SEGMENT_RECORDS * RECORD_SIZE;
+
+    private static final int STRINGS_HEADER_SIZE = 8;
+    private static final int STRING_ALIGN = 8;
+    private static final int MAX_STRING_BYTES = 1 << 16;
+    // String entries never straddle a window, so each can be read from one mapping
+    private static final long STRING_WINDOW = 1L << 30;
+
+    private static final int LOCK_STRIPES = 64;
+    private final Object[] balanceLocks = new Object[LOCK_STRIPES];
+
+    private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    // Last version written to each balance, indexed like the segments
+    private volatile long[][] versions = new long[0][];
+
+    private String openFile;
+    private FileChannel tableChannel;
+    private MappedByteBuffer header;
+    private FileChannel stringChannel;
+    private long stringsEnd;
+    private long generation;
+    private int count;
+
+    public MappedAccountStorage() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            balanceLocks[i] = new Object();
+        }
+    }
+
+    @Override
+    public String getDefaultFileName() {
+        return DEFAULT_FILE_NAME;
+    }
+
+    @Override
+    public boolean supportsRecordUpdates() {
+        return true;
+    }
+
+    @Override
+    public synchronized List<Account> loadAccounts(String filename) {
+        try {
+            closeChannels();
+            open(filename);
+
+            List<Account> accounts = new ArrayList<>(count);
+            ByteBuffer[] windows = mapStringWindows();
+            MappedByteBuffer[] segs = segments;
+            for (int slot = 0; slot < count; slot++) {
+                ByteBuffer segment = segs[slot >>> SEGMENT_SHIFT];
+                int base = (slot & (SEGMENT_RECORDS - 1)) * RECORD_SIZE;
+
+                int numberRef = segment.getInt(base + R_NUMBER);
+                if (numberRef == 0) {
+                    // Appended but never completed before a crash
+                    LOG.warn("Skipping incomplete account record {}", slot);
+                    continue;
+                }
+
+                Account account = new Account();
+                account.setAccountNumber(readString(windows, numberRef));
+                account.setCustomerName(readString(windows, segment.getInt(base + R_NAME)));
+                account.setPhoneNumber(readString(windows, segment.getInt(base + R_PHONE)));
+                account.setEmail(readString(windows, segment.getInt(base + R_EMAIL)));
+                account.setAddress(readString(windows, segment.getInt(base + R_ADDRESS)));
+                String credential = readString(windows, segment.getInt(base + R_PIN));
+                if (PinHasher.isHash(credential)) {
+                    account.setPinHash(credential);
+                } else {
+                    account.setPin(credential);
+                }
+                account.setBalanceMinor(segment.getLong(base + R_BALANCE));
+                long created = segment.getLong(base + R_CREATED);
+                account.setDateCreated(created != Long.MIN_VALUE ? new Date(created) : null);
+                int type = segment.get(base + R_TYPE);
+                account.setAccountType(type >= 0 ? Account.AccountType.values()[type] : null);
+                account.setActive((segment.get(base + R_FLAGS) & FLAG_ACTIVE) != 0);
+
+                slots.put(account.getAccountNumber(), slot);
+                accounts.add(account);
+            }
+            return accounts;
+
+        } catch (IOException e) {
+            LOG.error("Error loading accounts: {}", e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Rewrites the table and a compacted string file, then swaps the table in
+     * atomically. The new string file uses the next generation number, so the
+     * old table stays consistent until the rename.
+     */
+    @Override
+    public synchronized boolean saveAccounts(List<Account> accounts, String filename) {
+        File target = new File(filename);
+        File parent = target.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+
+        File temp = new File(filename + ".tmp");
+        File oldStrings = null;
+        long nextGeneration;
+        try {
+            long currentGeneration = filename.equals(openFile) ? generation : readGeneration(target);
+            if (currentGeneration > 0) {
+                oldStrings = stringsFile(filename, currentGeneration);
+            }
+            nextGeneration = currentGeneration + 1;
+
+            File strings = stringsFile(filename, nextGeneration);
+            try (FileOutputStream tableFile = new FileOutputStream(temp);
+                 DataOutputStream table = new DataOutputStream(new BufferedOutputStream(tableFile, 1 << 16));
+                 FileOutputStream stringFile = new FileOutputStream(strings);
+                 StringAreaWriter area = new StringAreaWriter(stringFile)) {
+
+                table.writeInt(MAGIC);
+                table.writeInt(VERSION);
+                table.writeInt(RECORD_SIZE);
+                table.writeInt(accounts.size());
+                table.writeLong(nextGeneration);
+                table.write(new byte[HEADER_SIZE - 24]);
+
+                for (Account account : accounts) {
+                    table.writeLong(account.getBalanceMinor());
+                    table.writeLong(account.getDateCreated() != null
+                            ? account.getDateCreated().getTime() : Long.MIN_VALUE);
+                    table.writeByte(account.getAccountType() != null ? account.getAccountType().ordinal() : -1);
+                    table.writeByte(account.isActive() ? FLAG_ACTIVE : 0);
+                    table.write(new byte[R_NUMBER - R_FLAGS - 1]);
+                    table.writeInt(area.intern(account.getAccountNumber()));
+                    table.writeInt(area.intern(account.getCustomerName()));
+                    table.writeInt(area.intern(account.getPhoneNumber()));
+                    table.writeInt(area.intern(account.getEmail()));
+                    table.writeInt(area.intern(account.getAddress()));
+                    table.writeInt(area.intern(credentialOf(account)));
+                    table.write(new byte[RECORD_SIZE - R_PIN - 4]);
+                }
+
+                area.flush();
+                stringFile.getFD().sync();
+                table.flush();
+                tableFile.getFD().sync();
+            }
+
+            closeChannels();
+            Files.move(temp.toPath(), target.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.error("Error saving accounts: {}", e.getMessage());
+            temp.delete();
+            return false;
+        }
+
+        if (oldStrings != null) {
+            oldStrings.delete();
+        }
+
+        try {
+            open(filename);
+            for (int slot = 0; slot < accounts.size(); slot++) {
+                slots.put(accounts.get(slot).getAccountNumber(), slot);
+            }
+            return true;
+        } catch (IOException e) {
+            LOG.error("Error reopening account table: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Writes every field of one account, appending a record for a new account.
+     * Unchanged strings keep their existing entry. The balance of an existing
+     * record is left alone; it only changes through {@link #updateBalance}.
+     */
+    @Override
+    public synchronized boolean updateAccount(Account account, String filename) {
+        return updateAccounts(Collections.singletonList(account), filename);
+    }
+
+    /**
+     * Writes several accounts with a single force of the strings file, which
+     * is what makes a bulk insert cheaper than one updateAccount per account.
+     */
+    @Override
+    public synchronized boolean updateAccounts(List<Account> accounts, String filename) {
+        try {
+            if (!filename.equals(openFile)) {
+                closeChannels();
+                open(filename);
+            }
+
+            int[][] refs = new int[accounts.size()][];
+            int[] recordSlots = new int[accounts.size()];
+            long stringsBefore = stringsEnd;
+            int appended = 0;
+            for (int i = 0; i < refs.length; i++) {
+                Account account = accounts.get(i);
+                Integer existing = slots.get(account.getAccountNumber());
+                int slot = existing != null ? existing : count + appended++;
+                ensureCapacity(slot + 1);
+                recordSlots[i] = slot;
+                refs[i] = storeStrings(slot, account, existing == null);
+            }
+            if (stringsEnd != stringsBefore) {
+                // Strings must be on disk before a record can point at them
+                stringChannel.force(false);
+            }
+
+            for (int i = 0; i < refs.length; i++) {
+                Account account = accounts.get(i);
+                int slot = recordSlots[i];
+                boolean isNew = slot >= count;
+                writeRecord(slot, account, refs[i], isNew);
+                if (isNew) {
+                    slots.put(account.getAccountNumber(), slot);
+                }
+            }
+            if (appended > 0) {
+                count += appended;
+                header.putInt(H_COUNT, count);
+            }
+            BYTES_WRITTEN.add((long) refs.length * RECORD_SIZE + stringsEnd - stringsBefore);
+            return true;
+
+        } catch (IOException e) {
+            LOG.error("Error updating account record: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private int[] storeStrings(int slot, Account account, boolean isNew) throws IOException {
+        ByteBuffer segment = segments[slot >>> SEGMENT_SHIFT];
+        int base = (slot & (SEGMENT_RECORDS - 1)) * RECORD_SIZE;
+        return new int[] {
+            storeString(segment, base + R_NAME, account.getCustomerName(), isNew),
+            storeString(segment, base + R_PHONE, account.getPhoneNumber(), isNew),
+            storeString(segment, base + R_EMAIL, account.getEmail(), isNew),
+            storeString(segment, base + R_ADDRESS, account.getAddress(), isNew),
+            storeString(segment, base + R_PIN, credentialOf(account), isNew),
+            storeString(segment, base + R_NUMBER, account.getAccountNumber(), isNew)
+        };
+    }
+
+    /**
+     * Fills in one record. The balance of an existing record is left alone; it
+     * only changes through {@link #updateBalance}.
+     */
+    private void writeRecord(int slot, Account account, int[] refs, boolean isNew) {
+        ByteBuffer segment = segments[slot >>> SEGMENT_SHIFT];
+        int base = (slot & (SEGMENT_RECORDS - 1)) * RECORD_SIZE;
+        if (isNew) {
+            segment.putLong(base + R_BALANCE, account.getBalanceMinor());
+        }
+        segment.putLong(base + R_CREATED, account.getDateCreated() != null
+                ? account.getDateCreated().getTime() : Long.MIN_VALUE);
+        segment.put(base + R_TYPE, (byte) (account.getAccountType() != null
+                ? account.getAccountType().ordinal() : -1));
+        segment.put(base + R_FLAGS, account.isActive() ? FLAG_ACTIVE : 0);
+        segment.putInt(base + R_NAME, refs[0]);
+        segment.putInt(base + R_PHONE, refs[1]);
+        segment.putInt(base + R_EMAIL, refs[2]);
+        segment.putInt(base + R_ADDRESS, refs[3]);
+        segment.putInt(base + R_PIN, refs[4]);
+        // The account number goes last: a record without one is incomplete
+        segment.putInt(base + R_NUMBER, refs[5]);
+    }
+
+    @Override
+    public boolean updateBalance(String accountNumber, long balanceMinor, long version, String filename) {
+        Integer slot = slots.get(accountNumber);
+        if (slot == null) {
+            return false;
+        }
+        MappedByteBuffer[] segs = segments;
+        long[][] vers = versions;
+        int index = slot & (SEGMENT_RECORDS - 1);
+        synchronized (balanceLocks[slot & (LOCK_STRIPES - 1)]) {
+            long[] segmentVersions = vers[slot >>> SEGMENT_SHIFT];
+            if (version > segmentVersions[index]) {
+                segmentVersions[index] = version;
+                segs[slot >>> SEGMENT_SHIFT].putLong(index * RECORD_SIZE + R_BALANCE, balanceMinor);
+            }
+        }
+        BYTES_WRITTEN.add(Long.BYTES);
+        return true;
+    }
+
+    /**
+     * The table plus its current string file.
+     */
+    @Override
+    public synchronized long sizeOnDisk(String filename) {
+        long size = new File(filename).length();
+        return filename.equals(openFile) ? size + stringsFile(filename, generation).length() : size;
+    }
+
+    @Override
+    public synchronized boolean sync(String filename) {
+        if (!filename.equals(openFile)) {
+            return true;
+        }
+        try {
+            stringChannel.force(false);
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+            header.force();
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            LOG.error("Error syncing account table: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closeChannels();
+    }
+
+    private void open(String filename) throws IOException {
+        File file = new File(filename);
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+
+        boolean isNew = !file.exists() || file.length() < HEADER_SIZE;
+        tableChannel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        header = tableChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        if (isNew) {
+            header.putInt(H_MAGIC, MAGIC);
+            header.putInt(H_VERSION, VERSION);
+            header.putInt(H_RECORD_SIZE, RECORD_SIZE);
+            header.putInt(H_COUNT, 0);
+            header.putLong(H_GENERATION, 1);
+            header.force();
+        } else if (header.getInt(H_MAGIC) != MAGIC) {
+            throw new IOException("Not an account table: " + file);
+        } else if (header.getInt(H_VERSION) != VERSION || header.getInt(H_RECORD_SIZE) != RECORD_SIZE) {
+            throw new IOException("Unsupported account table version " + header.getInt(H_VERSION));
+        }
+        count = header.getInt(H_COUNT);
+        generation = header.getLong(H_GENERATION);
+
+        stringChannel = FileChannel.open(stringsFile(filename, generation).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (stringChannel.size() < STRINGS_HEADER_SIZE) {
+            ByteBuffer stringsHeader = ByteBuffer.allocate(STRINGS_HEADER_SIZE);
+            stringsHeader.putInt(STRINGS_MAGIC).putInt(VERSION).flip();
+            stringChannel.write(stringsHeader, 0);
+        }
+        // A torn append may leave an unaligned tail; new entries start past it
+        stringsEnd = align(stringChannel.size());
+
+        segments = new MappedByteBuffer[0];
+        versions = new long[0][];
+        slots.clear();
+        ensureCapacity(count);
+        openFile = filename;
+    }
+
+    private void closeChannels() throws IOException {
+        // Mappings stay valid until collected; only the channels are closed here
+        segments = new MappedByteBuffer[0];
+        versions = new long[0][];
+        slots.clear();
+        header = null;
+        openFile = null;
+        try {
+            if (tableChannel != null) {
+                tableChannel.close();
+            }
+        } finally {
+            tableChannel = null;
+            if (stringChannel != null) {
+                stringChannel.close();
+                stringChannel = null;
+            }
+        }
+    }
+
+    private void ensureCapacity(int records) throws IOException {
+        MappedByteBuffer[] segs = segments;
+        if ((long) segs.length * SEGMENT_RECORDS >= records) {
+            return;
+        }
+        int needed = (int) (((long) records + SEGMENT_RECORDS - 1) >>> SEGMENT_SHIFT);
+        MappedByteBuffer[] grown = Arrays.copyOf(segs, needed);
+        long[][] grownVersions = Arrays.copyOf(versions, needed);
+        for (int i = segs.length; i < needed; i++) {
+            grown[i] = tableChannel.map(FileChannel.MapMode.READ_WRITE,
+                    HEADER_SIZE + i * SEGMENT_BYTES, SEGMENT_BYTES);
+            grownVersions[i] = new long[SEGMENT_RECORDS];
+        }
+        versions = grownVersions;
+        segments = grown;
+    }
+
+    // Reuses the string already referenced at the given offset if it is unchanged
+    private int storeString(ByteBuffer segment, int offset, String value, boolean isNew) throws IOException {
+        if (value == null) {
+            return 0;
+        }
+        if (!isNew) {
+            int current = segment.getInt(offset);
+            if (current != 0 && value.equals(readStringAt(current))) {
+                return current;
+            }
+        }
+        return appendString(value);
+    }
+
+    private int appendString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IOException("String too long for account table: " + bytes.length + " bytes");
+        }
+        long size = align(4 + bytes.length);
+        long position = stringsEnd;
+        if ((position & (STRING_WINDOW - 1)) + size > STRING_WINDOW) {
+            position = (position + STRING_WINDOW) & ~(STRING_WINDOW - 1);
+        }
+        if (position / STRING_ALIGN > 0xFFFFFFFFL) {
+            throw new IOException("Account string area is full");
+        }
+
+        ByteBuffer entry = ByteBuffer.allocate((int) size);
+        entry.putInt(bytes.length).put(bytes);
+        entry.clear();
+        while (entry.hasRemaining()) {
+            stringChannel.write(entry, position + entry.position());
+        }
+        stringsEnd = position + size;
+        return (int) (position / STRING_ALIGN);
+    }
+
+    private String readStringAt(int ref) throws IOException {
+        long position = Integer.toUnsignedLong(ref) * STRING_ALIGN;
+        ByteBuffer length = ByteBuffer.allocate(4);
+        readFully(length, position);
+        int size = length.getInt(0);
+        if (size < 0 || size > MAX_STRING_BYTES) {
+            throw new IOException("Corrupt string reference " + ref);
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(size);
+        readFully(bytes, position + 4);
+        return new String(bytes.array(), StandardCharsets.UTF_8);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (stringChannel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("String reference past end of file");
+            }
+        }
+    }
+
+    private ByteBuffer[] mapStringWindows() throws IOException {
+        long size = stringChannel.size();
+        int windows = (int) ((size + STRING_WINDOW - 1) / STRING_WINDOW);
+        ByteBuffer[] mapped = new ByteBuffer[windows];
+        for (int i = 0; i < windows; i++) {
+            long start = i * STRING_WINDOW;
+            mapped[i] = stringChannel.map(FileChannel.MapMode.READ_ONLY, start,
+                    Math.min(STRING_WINDOW, size - start));
+        }
+        return mapped;
+    }
+
+    // The PIN slot holds the hash, or the plaintext PIN of an account not yet migrated
+    private static String credentialOf(Account account) {
+        return account.getPinHash() != null ? account.getPinHash() : account.getPin();
+    }
+
+    private static String readString(ByteBuffer[] windows, int ref) throws IOException {
+        if (ref == 0) {
+            return null;
+        }
+        long position = Integer.toUnsignedLong(ref) * STRING_ALIGN;
+        int window = (int) (position / STRING_WINDOW);
+        if (window >= windows.length) {
+            throw new IOException("String reference past end of file: " + ref);
+        }
+        ByteBuffer buffer = windows[window];
+        int offset = (int) (position & (STRING_WINDOW - 1));
+        if (offset + 4 > buffer.limit()) {
+            throw new IOException("String reference past end of file: " + ref);
+        }
+        int size = buffer.getInt(offset);
+        if (size < 0 || offset + 4L + size > buffer.limit()) {
+            throw new IOException("Corrupt string reference " + ref);
+        }
+        byte[] bytes = new byte[size];
+        buffer.get(offset + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long readGeneration(File table) throws IOException {
+        if (!table.exists() || table.length() < HEADER_SIZE) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(table))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an account table: " + table);
+            }
+            in.skipBytes(H_GENERATION - 4);
+            return in.readLong();
+        }
+    }
+
+    private static File stringsFile(String filename, long generation) {
+        return new File(filename + "." + generation + ".str");
+    }
+
+    private static long align(long size) {
+        return (size + STRING_ALIGN - 1) & ~(long) (STRING_ALIGN - 1);
+    }
+
+    /**
+     * Sequential writer for a fresh string file. Equal strings are written once.
+     */
+    private static class StringAreaWriter implements Closeable {
+        private final DataOutputStream out;
+        private final Map<String, Integer> interned = new HashMap<>();
+        private long position;
+
+        StringAreaWriter(OutputStream target) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(target, 1 << 16));
+            out.writeInt(STRINGS_MAGIC);
+            out.writeInt(VERSION);
+            position = STRINGS_HEADER_SIZE;
+        }
+
+        int intern(String value) throws IOException {
+            if (value == null) {
+                return 0;
+            }
+            Integer ref = interned.get(value);
+            if (ref == null) {
+                ref = write(value);
+                interned.put(value, ref);
+            }
+            return ref;
+        }
+
+        private int write(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > MAX_STRING_BYTES) {
+                throw new IOException("String too long for account table: " + bytes.length + " bytes");
+            }
+            long size = align(4 + bytes.length);
+            if ((position & (STRING_WINDOW - 1)) + size > STRING_WINDOW) {
+                long next = (position + STRING_WINDOW) & ~(STRING_WINDOW - 1);
+                pad(next - position);
+            }
+            if (position / STRING_ALIGN > 0xFFFFFFFFL) {
+                throw new IOException("Account string area is full");
+            }
+            int ref = (int) (position / STRING_ALIGN);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            position += 4 + bytes.length;
+            pad(size - 4 - bytes.length);
+            return ref;
+        }
+
+        private void pad(long bytes) throws IOException {
+            for (long i = 0; i < bytes; i++) {
+                out.write(0);
+            }
+            position += bytes;
+        }
+
+        void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package services;
+
+import models.Account;
+import models.Money;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Reads onboarding requests from a CSV file with the header
+ * {@code customerName,phoneNumber,email,address,accountType,initialDeposit,pin}.
+ * Fields may be double-quoted (with {@code ""} for a literal quote) but a record
+ * must fit on one line. Each data line becomes one request, blank lines
+ * included, so row numbers in the report match line numbers minus the header.
+ */
+public final class OnboardingCsvReader {
+
+    public static final String HEADER = "customerName,phoneNumber,email,address,accountType,initialDeposit,pin";
+    private static final int FIELDS = 7;
+
+    private OnboardingCsvReader() {
+    }
+
+    /**
+     * Opens the file and returns its requests lazily. Close the stream to close the file.
+     */
+    public static Stream<OnboardingRequest> read(Path file) throws IOException {
+        BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        try {
+            String header = reader.readLine();
+            if (header == null || !HEADER.equalsIgnoreCase(stripBom(header).trim())) {
+                throw new IOException("Expected header: " + HEADER);
+            }
+        } catch (IOException e) {
+            reader.close();
+            throw e;
+        }
+        return reader.lines()
+                .map(OnboardingCsvReader::parseLine)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    static OnboardingRequest parseLine(String line) {
+        List<String> fields = splitFields(line);
+        while (fields.size() < FIELDS) {
+            fields.add(null);
+        }
+        return new OnboardingRequest(fields.get(0), fields.get(1), fields.get(2), fields.get(3),
+                parseAccountType(fields.get(4)), parseAmount(fields.get(5)), fields.get(6));
+    }
+
+    /**
+     * Accepts the enum name or the display name, ignoring case; null if neither.
+     */
+    static Account.AccountType parseAccountType(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        for (Account.AccountType type : Account.AccountType.values()) {
+            if (type.name().equalsIgnoreCase(trimmed) || type.getDisplayName().equalsIgnoreCase(trimmed)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private static Money parseAmount(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Money.parse(value.trim());
+        } catch (NumberFormatException | ArithmeticException e) {
+            return null;
+        }
+    }
+
+    private static List<String> splitFields(String line) {
+        List<String> fields = new ArrayList<>(FIELDS);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String stripBom(String header) {
+        return !header.isEmpty() && header.charAt(0) == '\uFEFF' ? header.substring(1) : header;
+    }
+}
@@ -0,0 +1,45 @@
+package services;
+
+import java.util.List;
+
+/**
+ * Per-row results of a batch onboarding run, in request order.
+ */
+public class OnboardingReport {
+    private final List<OnboardingResult> results;
+    private final int created;
+    private final boolean committed;
+    private final long elapsedMillis;
+
+    OnboardingReport(List<OnboardingResult> results, int created, boolean committed, long elapsedMillis) {
+        this.results = results;
+        this.created = created;
+        this.committed = committed;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public List<OnboardingResult> getResults() {
+        return results;
+    }
+
+    public int getCreatedCount() {
+        return created;
+    }
+
+    public int getRejectedCount() {
+        return results.size() - created;
+    }
+
+    /**
+     * Whether every valid row reached disk. If false, the rows that did not
+     * were rolled back and are reported as not committed; the created ones
+     * are durable.
+     */
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
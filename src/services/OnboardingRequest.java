@@ -0,0 +1,58 @@
+package services;
+
+import models.Account;
+import models.Money;
+
+/**
+ * One account to open in a batch onboarding run. Fields are taken as given;
+ * validation happens in {@link AccountService#onboardAccounts}. A null
+ * account type or deposit means the source value could not be parsed.
+ */
+public class OnboardingRequest {
+    private final String customerName;
+    private final String phoneNumber;
+    private final String email;
+    private final String address;
+    private final Account.AccountType accountType;
+    private final Money initialDeposit;
+    private final String pin;
+
+    public OnboardingRequest(String customerName, String phoneNumber, String email, String address,
+                             Account.AccountType accountType, Money initialDeposit, String pin) {
+        this.customerName = customerName;
+        this.phoneNumber = phoneNumber;
+        this.email = email;
+        this.address = address;
+        this.accountType = accountType;
+        this.initialDeposit = initialDeposit;
+        this.pin = pin;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public Account.AccountType getAccountType() {
+        return accountType;
+    }
+
+    public Money getInitialDeposit() {
+        return initialDeposit;
+    }
+
+    public String getPin() {
+        return pin;
+    }
+}
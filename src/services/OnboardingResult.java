@@ -0,0 +1,72 @@
+package services;
+
+import utils.ValidationCode;
+
+/**
+ * Outcome of one row of a batch onboarding run. A rejected row names the
+ * first field that failed and why; a created row carries the new account
+ * number. A valid row whose account could not be written to disk has neither.
+ */
+public class OnboardingResult {
+    private final int row;
+    private final String accountNumber;
+    private final String field;
+    private final ValidationCode code;
+
+    private OnboardingResult(int row, String accountNumber, String field, ValidationCode code) {
+        this.row = row;
+        this.accountNumber = accountNumber;
+        this.field = field;
+        this.code = code;
+    }
+
+    static OnboardingResult created(int row, String accountNumber) {
+        return new OnboardingResult(row, accountNumber, null, ValidationCode.VALID);
+    }
+
+    static OnboardingResult rejected(int row, String field, ValidationCode code) {
+        return new OnboardingResult(row, null, field, code);
+    }
+
+    static OnboardingResult notCommitted(int row) {
+        return new OnboardingResult(row, null, null, null);
+    }
+
+    /**
+     * 1-based position of the request in the batch.
+     */
+    public int getRow() {
+        return row;
+    }
+
+    public boolean isCreated() {
+        return accountNumber != null;
+    }
+
+    /**
+     * Whether the row was valid but its account was rolled back because the
+     * write-ahead log could not be written or synced.
+     */
+    public boolean isNotCommitted() {
+        return accountNumber == null && code == null;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public ValidationCode getCode() {
+        return code;
+    }
+
+    public String getMessage() {
+        if (isNotCommitted()) {
+            return "Account not created, it could not be written to disk";
+        }
+        return isCreated() ? "Account created" : field + ": " + code.getMessage();
+    }
+}
@@ -0,0 +1,208 @@
+package services;
+
+import models.Account;
+import utils.LatencyStats;
+import utils.Metrics;
+import utils.Log;
+import utils.PinHasher;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Checks PINs against account credentials.
+ *
+ * Key derivation is deliberately slow, so it runs on a small dedicated pool
+ * with a bounded queue: a burst of logins queues up to that bound and is then
+ * refused, instead of every request thread burning a core on PBKDF2 at once.
+ *
+ * After a successful check the account gets a short-lived verified session,
+ * a keyed digest of the PIN that was accepted. A later check of the same PIN
+ * within the session (changePin right after login, say) compares digests
+ * instead of deriving the key again. A different PIN always takes the full
+ * slow path, so sessions are no shortcut for guessing.
+ */
+public class PinAuthenticator implements Closeable {
+
+    private static final Log LOG = Log.get(PinAuthenticator.class);
+
+    private static final int THREADS = Integer.getInteger("banking.pin.verifyThreads",
+            Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final int QUEUE_CAPACITY = Integer.getInteger("banking.pin.verifyQueue", 64);
+    private static final long SESSION_MILLIS = Long.getLong("banking.pin.sessionMillis", 5 * 60_000L);
+    private static final int MAX_SESSIONS = 10_000;
+
+    /**
+     * Outcome of {@link #verify}. REJECTED says nothing about the PIN: the
+     * verification queue was full and the check never ran.
+     */
+    public enum Result {
+        VERIFIED,
+        MISMATCH,
+        REJECTED
+    }
+
+    private static final class Session {
+        final byte[] digest;
+        final long expiresAt;
+
+        Session(byte[] digest, long expiresAt) {
+            this.digest = digest;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final ThreadPoolExecutor pool;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecretKeySpec sessionKey;
+    private final LatencyStats verifyLatency = Metrics.latency("pin.verify");
+    private final LongAdder sessionHits = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    public PinAuthenticator() {
+        AtomicInteger count = new AtomicInteger();
+        pool = new ThreadPoolExecutor(THREADS, THREADS, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                    Thread thread = new Thread(runnable, "pin-verify-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // Never stored: sessions do not outlive the process
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        sessionKey = new SecretKeySpec(key, "HmacSHA256");
+    }
+
+    /**
+     * Whether {@code pin} matches the account's credential. Accounts from older
+     * versions that still hold a plaintext PIN are compared directly; the
+     * caller is expected to upgrade them with {@link #hash} once verified.
+     * Returns REJECTED, after logging it, if the verification queue is full.
+     */
+    public Result verify(Account account, String pin) {
+        long start = System.nanoTime();
+        String accountNumber = account.getAccountNumber();
+        byte[] digest = sessionDigest(accountNumber, pin);
+
+        boolean verified;
+        Session session = sessions.get(accountNumber);
+        if (session != null && session.expiresAt > System.currentTimeMillis()
+                && MessageDigest.isEqual(session.digest, digest)) {
+            sessionHits.increment();
+            verified = true;
+        } else if (account.getPinHash() != null) {
+            String credential = account.getPinHash();
+            Boolean result = runOnPool(() -> PinHasher.verify(pin, credential));
+            if (result == null) {
+                return Result.REJECTED;
+            }
+            verified = result;
+        } else {
+            verified = PinHasher.matchesPlaintext(pin, account.getPin());
+        }
+
+        if (verified) {
+            openSession(accountNumber, digest);
+        } else {
+            failures.increment();
+        }
+        verifyLatency.record(System.nanoTime() - start);
+        return verified ? Result.VERIFIED : Result.MISMATCH;
+    }
+
+    /**
+     * Hashes a new PIN on the verification pool. Returns null, after logging
+     * it, if the queue is full.
+     */
+    public String hash(String pin) {
+        return runOnPool(() -> PinHasher.hash(pin));
+    }
+
+    /**
+     * Ends the account's verified session, e.g. after its PIN changed.
+     */
+    public void invalidate(String accountNumber) {
+        sessions.remove(accountNumber);
+    }
+
+    /**
+     * Time to verify a PIN, session hits included.
+     */
+    public LatencyStats getVerifyLatency() {
+        return verifyLatency;
+    }
+
+    public long getSessionHits() {
+        return sessionHits.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * Verifications or hashes refused because the queue was full.
+     */
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private <T> T runOnPool(Callable<T> task) {
+        try {
+            return pool.submit(task).get();
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            LOG.warn("PIN verification queue is full, request refused");
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("PIN verification failed", e.getCause());
+        }
+    }
+
+    private void openSession(String accountNumber, byte[] digest) {
+        if (sessions.size() >= MAX_SESSIONS) {
+            long now = System.currentTimeMillis();
+            sessions.values().removeIf(session -> session.expiresAt <= now);
+            if (sessions.size() >= MAX_SESSIONS) {
+                return;
+            }
+        }
+        sessions.put(accountNumber, new Session(digest, System.currentTimeMillis() + SESSION_MILLIS));
+    }
+
+    private byte[] sessionDigest(String accountNumber, String pin) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(sessionKey);
+            mac.update(accountNumber.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(pin.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
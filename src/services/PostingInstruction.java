@@ -0,0 +1,71 @@
+package services;
+
+import models.Money;
+
+/**
+ * One credit, debit or transfer in a batch posted with
+ * {@link AccountService#postBatch}. A null description gets the same default
+ * text as the single-operation methods.
+ */
+public class PostingInstruction {
+
+    public enum Type {
+        DEPOSIT,
+        WITHDRAWAL,
+        TRANSFER
+    }
+
+    private final Type type;
+    private final String accountNumber;
+    private final String toAccountNumber;
+    private final Money amount;
+    private final String description;
+
+    private PostingInstruction(Type type, String accountNumber, String toAccountNumber,
+                               Money amount, String description) {
+        this.type = type;
+        this.accountNumber = accountNumber;
+        this.toAccountNumber = toAccountNumber;
+        this.amount = amount;
+        this.description = description;
+    }
+
+    public static PostingInstruction deposit(String accountNumber, Money amount, String description) {
+        return new PostingInstruction(Type.DEPOSIT, accountNumber, null, amount, description);
+    }
+
+    public static PostingInstruction withdrawal(String accountNumber, Money amount, String description) {
+        return new PostingInstruction(Type.WITHDRAWAL, accountNumber, null, amount, description);
+    }
+
+    public static PostingInstruction transfer(String fromAccountNumber, String toAccountNumber,
+                                              Money amount, String description) {
+        return new PostingInstruction(Type.TRANSFER, fromAccountNumber, toAccountNumber, amount, description);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * The account credited or debited; the source account of a transfer.
+     */
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    /**
+     * The destination of a transfer; null otherwise.
+     */
+    public String getToAccountNumber() {
+        return toAccountNumber;
+    }
+
+    public Money getAmount() {
+        return amount;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
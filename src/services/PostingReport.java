@@ -0,0 +1,44 @@
+package services;
+
+import java.util.List;
+
+/**
+ * Per-instruction results of a posting batch, in instruction order.
+ */
+public class PostingReport {
+    private final List<PostingResult> results;
+    private final int posted;
+    private final boolean committed;
+    private final long elapsedMillis;
+
+    PostingReport(List<PostingResult> results, int posted, boolean committed, long elapsedMillis) {
+        this.results = results;
+        this.posted = posted;
+        this.committed = committed;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public List<PostingResult> getResults() {
+        return results;
+    }
+
+    public int getPostedCount() {
+        return posted;
+    }
+
+    public int getRejectedCount() {
+        return results.size() - posted;
+    }
+
+    /**
+     * Whether every posted instruction is durable. If false the postings are
+     * applied in memory but may be lost on restart.
+     */
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
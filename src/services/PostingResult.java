@@ -0,0 +1,57 @@
+package services;
+
+/**
+ * Outcome of one instruction of a posting batch.
+ */
+public class PostingResult {
+
+    public enum Status {
+        POSTED("Posted"),
+        INVALID_AMOUNT("Amount is not valid"),
+        ACCOUNT_NOT_FOUND("Account does not exist"),
+        ACCOUNT_INACTIVE("Account is not active"),
+        SAME_ACCOUNT("Source and destination accounts are the same"),
+        INSUFFICIENT_FUNDS("Balance would fall below the minimum"),
+        NOT_LOGGED("Could not be written to the write-ahead log");
+
+        private final String message;
+
+        Status(String message) {
+            this.message = message;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    private final PostingInstruction instruction;
+    private final Status status;
+    private final String transactionId;
+
+    PostingResult(PostingInstruction instruction, Status status, String transactionId) {
+        this.instruction = instruction;
+        this.status = status;
+        this.transactionId = transactionId;
+    }
+
+    public PostingInstruction getInstruction() {
+        return instruction;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isPosted() {
+        return status == Status.POSTED;
+    }
+
+    /**
+     * Id of the transaction recorded on the instruction's account (the debit
+     * side of a transfer); null unless posted.
+     */
+    public String getTransactionId() {
+        return transactionId;
+    }
+}
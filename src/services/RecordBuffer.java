@@ -0,0 +1,52 @@
+package services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+
+/**
+ * Reusable scratch space for the [int payloadLength][int crc32(payload)][payload]
+ * framing shared by the transaction journal and the write-ahead log. Encoding
+ * into one buffer per file, instead of a new stream, array copy and CRC per
+ * record, keeps bulk appends from being dominated by allocation.
+ * Not thread-safe; owners use it under their own lock.
+ */
+class RecordBuffer extends ByteArrayOutputStream {
+
+    private final DataOutputStream data = new DataOutputStream(this);
+    private final CRC32 crc = new CRC32();
+    private final int retainedCapacity;
+
+    /**
+     * @param retainedCapacity larger arrays are dropped after use so one big
+     *                         record does not pin its buffer for good
+     */
+    RecordBuffer(int initialCapacity, int retainedCapacity) {
+        super(initialCapacity);
+        this.retainedCapacity = retainedCapacity;
+    }
+
+    /**
+     * Empties the buffer and returns a stream to encode the next payload into.
+     */
+    DataOutputStream startRecord() {
+        reset();
+        return data;
+    }
+
+    /**
+     * Writes the framed payload to {@code out}.
+     */
+    void writeRecordTo(DataOutputStream out) throws IOException {
+        crc.reset();
+        crc.update(buf, 0, count);
+        out.writeInt(count);
+        out.writeInt((int) crc.getValue());
+        out.write(buf, 0, count);
+        if (buf.length > retainedCapacity) {
+            buf = new byte[retainedCapacity];
+            count = 0;
+        }
+    }
+}
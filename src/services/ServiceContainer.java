@@ -0,0 +1,97 @@
+package services;
+
+import utils.Log;
+import utils.Metrics;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The application's single AccountService, shared by every window so they
+ * all see one in-memory copy of the accounts and transactions.
+ *
+ * Loading reads both data files, so it is started in the background with
+ * {@link #warmUp} while the login screen is shown; the first caller that
+ * actually needs the service waits for it to finish. Once it is loaded,
+ * metrics are published over JMX and dumped to {@code <data>/metrics}.
+ */
+public class ServiceContainer {
+
+    private static final Log LOG = Log.get(ServiceContainer.class);
+
+    private final String dataDirectory;
+    private volatile CompletableFuture<AccountService> accountService;
+
+    public ServiceContainer(String dataDirectory) {
+        this.dataDirectory = dataDirectory;
+    }
+
+    /**
+     * Starts loading the service on a background thread, if not already started.
+     */
+    public CompletableFuture<AccountService> warmUp() {
+        CompletableFuture<AccountService> loading = accountService;
+        if (loading == null) {
+            synchronized (this) {
+                loading = accountService;
+                if (loading == null) {
+                    loading = new CompletableFuture<>();
+                    accountService = loading;
+                    Thread thread = new Thread(load(loading), "service-warmup");
+                    thread.setDaemon(true);
+                    thread.start();
+                }
+            }
+        }
+        return loading;
+    }
+
+    /**
+     * The shared service, loading it first if need be. Blocks until loaded;
+     * not for use on the Event Dispatch Thread.
+     */
+    public AccountService getAccountService() {
+        return warmUp().join();
+    }
+
+    /**
+     * Registers a JVM shutdown hook that drains pending transfers and
+     * checkpoints the service, if it was ever loaded.
+     */
+    public void installShutdownHook() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "service-shutdown"));
+    }
+
+    /**
+     * Closes the service if it was loaded; a container never used does no I/O.
+     */
+    public void close() {
+        CompletableFuture<AccountService> loading = accountService;
+        if (loading == null) {
+            return;
+        }
+        try {
+            loading.join().close();
+            LOG.info("Account data saved");
+            Metrics.stopReporting();
+        } catch (RuntimeException e) {
+            LOG.error("Error closing account service: {}", e.getMessage());
+        }
+        // Shutdown hooks run in no set order; make sure these lines are written
+        Log.flush();
+    }
+
+    private Runnable load(CompletableFuture<AccountService> loading) {
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                loading.complete(new AccountService(dataDirectory));
+                Metrics.startReporting(new File(dataDirectory, "metrics"));
+                LOG.info("Account data loaded in {} ms", (System.nanoTime() - start) / 1_000_000);
+            } catch (RuntimeException | Error e) {
+                LOG.error("Could not load account data", e);
+                loading.completeExceptionally(e);
+            }
+        };
+    }
+}
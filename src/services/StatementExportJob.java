@@ -0,0 +1,216 @@
+package services;
+
+import models.Transaction;
+import utils.Log;
+import utils.ValidationUtils;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes one CSV statement per account ({@code <accountNumber>.csv}) into an
+ * output directory, for month-end runs over every account.
+ *
+ * Accounts are split into ranges that a fork-join pool of the configured size
+ * works through; idle workers steal the remaining halves of busy workers'
+ * ranges. Each account's history is read once through a
+ * {@link TransactionCursor}, and every worker thread reuses one output buffer,
+ * so throughput grows with the number of workers until the disk saturates.
+ */
+public class StatementExportJob {
+
+    private static final Log LOG = Log.get(StatementExportJob.class);
+
+    /**
+     * Receives progress updates. Called from worker threads, so
+     * implementations must be thread-safe.
+     */
+    public interface ProgressListener {
+        void onProgress(int completed, int total);
+    }
+
+    /**
+     * Outcome of a run.
+     */
+    public static class Result {
+        private final int exported;
+        private final long rows;
+        private final List<String> failedAccounts;
+        private final long elapsedMillis;
+
+        Result(int exported, long rows, List<String> failedAccounts, long elapsedMillis) {
+            this.exported = exported;
+            this.rows = rows;
+            this.failedAccounts = failedAccounts;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public int getExported() {
+            return exported;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public List<String> getFailedAccounts() {
+            return failedAccounts;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public boolean isSuccessful() {
+            return failedAccounts.isEmpty();
+        }
+    }
+
+    private static final int BUFFER_SIZE = 256 << 10;
+    // Accounts a task exports itself instead of splitting further
+    private static final int LEAF_ACCOUNTS = 32;
+
+    private final TransactionService transactionService;
+    private final File outputDirectory;
+    private int parallelism = Integer.getInteger("banking.export.threads",
+            Runtime.getRuntime().availableProcessors());
+    private Date from;
+    private Date to;
+    private ProgressListener progressListener;
+
+    public StatementExportJob(TransactionService transactionService, String outputDirectory) {
+        this.transactionService = transactionService;
+        this.outputDirectory = new File(outputDirectory);
+    }
+
+    public StatementExportJob parallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Limits statements to transactions in the inclusive period; either bound may be null.
+     */
+    public StatementExportJob period(Date from, Date to) {
+        this.from = from;
+        this.to = to;
+        return this;
+    }
+
+    public StatementExportJob onProgress(ProgressListener listener) {
+        this.progressListener = listener;
+        return this;
+    }
+
+    public Result run(Collection<String> accountNumbers) {
+        long started = System.currentTimeMillis();
+        if (!outputDirectory.exists()) {
+            outputDirectory.mkdirs();
+        }
+
+        String[] accounts = accountNumbers.toArray(new String[0]);
+        Run run = new Run(accounts.length);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new ExportRange(run, accounts, 0, accounts.length));
+        } finally {
+            pool.shutdown();
+        }
+
+        List<String> failed = new ArrayList<>(run.failed);
+        Collections.sort(failed);
+        return new Result(accounts.length - failed.size(), run.rows.get(), failed,
+                System.currentTimeMillis() - started);
+    }
+
+    private boolean exportAccount(String accountNumber, ByteBuffer buffer, Run run) {
+        // The account number becomes a file name, so only accept the real format
+        if (!ValidationUtils.isValidAccountNumber(accountNumber)) {
+            LOG.warn("Skipping statement for invalid account number: {}", accountNumber);
+            return false;
+        }
+
+        TransactionCursor cursor = transactionService.openCursor(
+                TransactionQuery.forAccount(accountNumber).from(from).to(to));
+        File file = new File(outputDirectory, accountNumber + ".csv");
+        long rows = 0;
+        try (CsvStatementWriter writer = new CsvStatementWriter(file.getPath(), buffer)) {
+            writer.writeHeader();
+            while (cursor.hasNext()) {
+                Transaction transaction = cursor.next();
+                writer.write(transaction);
+                rows++;
+            }
+        } catch (IOException e) {
+            LOG.error("Error exporting statement for {}: {}", accountNumber, e.getMessage());
+            return false;
+        }
+        run.rows.addAndGet(rows);
+        return true;
+    }
+
+    private void reportProgress(Run run) {
+        int completed = run.completed.incrementAndGet();
+        if (progressListener != null && (completed % run.reportEvery == 0 || completed == run.total)) {
+            progressListener.onProgress(completed, run.total);
+        }
+    }
+
+    // State shared by the tasks of one run
+    private static class Run {
+        final int total;
+        final int reportEvery;
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicLong rows = new AtomicLong();
+        final Queue<String> failed = new ConcurrentLinkedQueue<>();
+        // One output buffer per pool thread, reused for every file it writes
+        final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+        Run(int total) {
+            this.total = total;
+            this.reportEvery = Math.max(1, total / 100);
+        }
+    }
+
+    private class ExportRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Run run;
+        private final String[] accounts;
+        private final int start;
+        private final int end;
+
+        ExportRange(Run run, String[] accounts, int start, int end) {
+            this.run = run;
+            this.accounts = accounts;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > LEAF_ACCOUNTS) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new ExportRange(run, accounts, start, middle),
+                        new ExportRange(run, accounts, middle, end));
+                return;
+            }
+            ByteBuffer buffer = run.buffers.get();
+            for (int i = start; i < end; i++) {
+                if (!exportAccount(accounts[i], buffer, run)) {
+                    run.failed.add(accounts[i]);
+                }
+                reportProgress(run);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package services;
+
+import models.Transaction;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over the result of a {@link TransactionQuery} one page at a time,
+ * newest first, so a caller can walk an account's entire history while only
+ * one page of rows is held at once.
+ */
+public class TransactionCursor implements Iterator<Transaction> {
+    public static final int DEFAULT_PAGE_SIZE = 4096;
+
+    private final TransactionService service;
+    private final TransactionQuery query;
+    private final int pageSize;
+    private long remaining;
+
+    private List<Transaction> page = Collections.emptyList();
+    private int position;
+    private String nextCursor;
+    private boolean lastPage;
+
+    public TransactionCursor(TransactionService service, TransactionQuery query, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        this.service = service;
+        this.query = query;
+        this.pageSize = pageSize;
+        this.remaining = query.getLimit();
+        this.nextCursor = query.getCursor();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (position == page.size()) {
+            if (lastPage || remaining == 0) {
+                return false;
+            }
+            fetch();
+        }
+        return true;
+    }
+
+    @Override
+    public Transaction next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        remaining--;
+        return page.get(position++);
+    }
+
+    private void fetch() {
+        TransactionPage result = service.query(TransactionQuery.forAccount(query.getAccountNumber())
+                .from(query.getFrom())
+                .to(query.getTo())
+                .limit((int) Math.min(pageSize, remaining))
+                .after(nextCursor));
+        page = result.getTransactions();
+        position = 0;
+        nextCursor = result.getNextCursor();
+        lastPage = nextCursor == null;
+    }
+}
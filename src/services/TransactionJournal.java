@@ -0,0 +1,305 @@
+package services;
+
+import models.Money;
+import models.Transaction;
+import utils.Log;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of transactions.
+ *
+ * File layout: an 8 byte header (magic + version) followed by records of
+ * [int payloadLength][int crc32(payload)][payload]. Appending a transaction
+ * writes a single record at the end of the file, so the cost of a post no
+ * longer depends on the size of the history. Loading replays the records
+ * sequentially and stops at the first torn or corrupt record, which is then
+ * truncated away so the next append starts from a clean tail.
+ */
+public class TransactionJournal implements Closeable {
+
+    private static final Log LOG = Log.get(TransactionJournal.class);
+
+    private static final int MAGIC = 0x42545844; // "BTXD"
+    // Version 1 stored amounts as double; version 2 stores paise as long
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+
+    private final File file;
+    private DataOutputStream out;
+    private FileOutputStream fileOut;
+    private final RecordBuffer scratch = new RecordBuffer(256, 1 << 12);
+
+    public TransactionJournal(String filename) {
+        this.file = new File(filename);
+    }
+
+    public boolean exists() {
+        return file.exists();
+    }
+
+    /**
+     * Size of the journal file in bytes.
+     */
+    public long length() {
+        return file.length();
+    }
+
+    /**
+     * Appends one transaction to the end of the journal.
+     * The record is flushed to the OS; call {@link #sync()} to force it to disk.
+     */
+    public synchronized void append(Transaction transaction) throws IOException {
+        ensureOpen();
+        writeRecord(out, transaction);
+        out.flush();
+    }
+
+    /**
+     * Appends several transactions with a single flush.
+     */
+    public synchronized void appendAll(List<Transaction> transactions) throws IOException {
+        ensureOpen();
+        for (Transaction transaction : transactions) {
+            writeRecord(out, transaction);
+        }
+        out.flush();
+    }
+
+    /**
+     * Forces appended records to the storage device.
+     */
+    public synchronized void sync() throws IOException {
+        if (out != null) {
+            out.flush();
+            fileOut.getFD().sync();
+        }
+    }
+
+    /**
+     * Checks that an existing journal starts with a valid header. Throws if it
+     * does not, since the records after it could not be read either.
+     */
+    public synchronized void checkHeader() throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            readHeader(in);
+        }
+    }
+
+    /**
+     * Replays the journal from the beginning. A torn or corrupt tail is truncated.
+     * Throws if the header is damaged.
+     */
+    public synchronized List<Transaction> readAll() throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        File temp = tempFile();
+        if (temp.exists() && temp.delete()) {
+            // Left by a rewrite that crashed before its rename; the journal itself is intact
+            LOG.warn("Removed unfinished journal rewrite {}", temp);
+        }
+        if (!file.exists() || file.length() == 0) {
+            return transactions;
+        }
+
+        long validLength = HEADER_SIZE;
+        int version;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+
+            version = readHeader(in);
+            CRC32 crc = new CRC32();
+            byte[] buffer = new byte[256];
+
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length <= 0 || length > MAX_RECORD_SIZE) {
+                    break;
+                }
+                int checksum;
+                try {
+                    checksum = in.readInt();
+                    if (buffer.length < length) {
+                        buffer = new byte[Math.max(length, buffer.length * 2)];
+                    }
+                    in.readFully(buffer, 0, length);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(buffer, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                transactions.add(decode(new DataInputStream(
+                        new ByteArrayInputStream(buffer, 0, length)), version));
+                validLength += 8 + length;
+            }
+        }
+
+        if (version != VERSION) {
+            // Keep the original, like transactions.dat.migrated; rewrite swaps in the new file atomically
+            File original = new File(file.getPath() + ".v" + version);
+            LOG.info("Upgrading transaction journal from version {} to {}, keeping the original as {}",
+                    version, VERSION, original.getName());
+            Files.copy(file.toPath(), original.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            rewrite(transactions);
+        } else if (validLength < file.length()) {
+            LOG.warn("Transaction journal has a damaged tail, truncating to {} bytes", validLength);
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            }
+        }
+        return transactions;
+    }
+
+    /**
+     * Writes a complete journal containing the given transactions, replacing any
+     * existing file atomically: it is written and synced under a temporary name
+     * first, so a crash leaves either the old journal or the new one. Used by the
+     * one-time migration from transactions.dat.
+     */
+    public synchronized void rewrite(List<Transaction> transactions) throws IOException {
+        close();
+        File temp = tempFile();
+        try (FileOutputStream fos = new FileOutputStream(temp);
+             DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(fos, 1 << 16))) {
+            dos.writeInt(MAGIC);
+            dos.writeInt(VERSION);
+            for (Transaction transaction : transactions) {
+                writeRecord(dos, transaction);
+            }
+            dos.flush();
+            fos.getFD().sync();
+        }
+        Files.move(temp.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (out != null) {
+            try {
+                out.close();
+            } finally {
+                out = null;
+                fileOut = null;
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (out != null) {
+            return;
+        }
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        boolean isNew = !file.exists() || file.length() == 0;
+        if (!isNew) {
+            // Records appended after a damaged or older header could never be read back
+            int version;
+            try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                version = readHeader(in);
+            }
+            if (version != VERSION) {
+                throw new IOException("Refusing to append to version " + version + " journal " + file);
+            }
+        }
+        fileOut = new FileOutputStream(file, true);
+        out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16));
+        if (isNew) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+    }
+
+    private File tempFile() {
+        return new File(file.getPath() + ".tmp");
+    }
+
+    private static int readHeader(DataInputStream in) throws IOException {
+        int magic;
+        int version;
+        try {
+            magic = in.readInt();
+            version = in.readInt();
+        } catch (EOFException e) {
+            throw new IOException("Transaction journal header is truncated");
+        }
+        if (magic != MAGIC) {
+            throw new IOException("Not a transaction journal");
+        }
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported transaction journal version " + version);
+        }
+        return version;
+    }
+
+    private void writeRecord(DataOutputStream out, Transaction transaction) throws IOException {
+        encode(scratch.startRecord(), transaction);
+        scratch.writeRecordTo(out);
+    }
+
+    static void encode(DataOutputStream out, Transaction t) throws IOException {
+        writeNullable(out, t.getTransactionId());
+        writeNullable(out, t.getAccountNumber());
+        out.writeByte(t.getType() != null ? t.getType().ordinal() : -1);
+        out.writeLong(t.getAmountMinor());
+        out.writeLong(t.getBalanceAfterMinor());
+        out.writeLong(t.getTimestamp() != null ? t.getTimestamp().getTime() : Long.MIN_VALUE);
+        writeNullable(out, t.getDescription());
+        writeNullable(out, t.getTransferToAccount());
+        writeNullable(out, t.getStatus());
+    }
+
+    static Transaction decode(DataInputStream in) throws IOException {
+        return decode(in, VERSION);
+    }
+
+    static Transaction decode(DataInputStream in, int version) throws IOException {
+        Transaction t = new Transaction();
+        t.setTransactionId(readNullable(in));
+        t.setAccountNumber(readNullable(in));
+        int type = in.readByte();
+        t.setType(type >= 0 ? Transaction.TransactionType.values()[type] : null);
+        if (version >= 2) {
+            t.setAmountMinor(in.readLong());
+            t.setBalanceAfterMinor(in.readLong());
+        } else {
+            t.setAmountMinor(Money.toMinor(in.readDouble()));
+            t.setBalanceAfterMinor(Money.toMinor(in.readDouble()));
+        }
+        long timestamp = in.readLong();
+        t.setTimestamp(timestamp != Long.MIN_VALUE ? new Date(timestamp) : null);
+        t.setDescription(readNullable(in));
+        t.setTransferToAccount(readNullable(in));
+        t.setStatus(readNullable(in));
+        return t;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,70 @@
+package services;
+
+import java.util.Date;
+
+/**
+ * Parameters for a history query against one account.
+ *
+ * Results come back newest first. {@code from} and {@code to} are inclusive
+ * bounds on the transaction timestamp; either may be null. A page holds at
+ * most {@code limit} rows, and the cursor of a previous page continues with
+ * the next older rows.
+ */
+public class TransactionQuery {
+    private final String accountNumber;
+    private Date from;
+    private Date to;
+    private int limit = Integer.MAX_VALUE;
+    private String cursor;
+
+    private TransactionQuery(String accountNumber) {
+        this.accountNumber = accountNumber;
+    }
+
+    public static TransactionQuery forAccount(String accountNumber) {
+        return new TransactionQuery(accountNumber);
+    }
+
+    public TransactionQuery from(Date from) {
+        this.from = from;
+        return this;
+    }
+
+    public TransactionQuery to(Date to) {
+        this.to = to;
+        return this;
+    }
+
+    public TransactionQuery limit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    public TransactionQuery after(String cursor) {
+        this.cursor = cursor;
+        return this;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public Date getFrom() {
+        return from;
+    }
+
+    public Date getTo() {
+        return to;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+}
@@ -1,69 +1,465 @@
 package services;
 
+import models.Money;
 import models.Transaction;
+import utils.Log;
+import java.io.File;
+import java.io.IOException;
+import java.time.YearMonth;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Transaction history. Safe for concurrent use: the journal serializes
+ * appends, and each account's history list is guarded by its own monitor.
+ *
+ * The journal is read on a background thread, started by {@link #loadInBackground}
+ * or by the first call that needs it, so constructing the service (and with
+ * it AccountService, and the login screen) takes the same time however long
+ * the history is. Until that load finishes, queries and totals wait for it,
+ * and so do appends to the journal, which keeps the loader from reading back
+ * a transaction that was also indexed by its writer. Indexing new
+ * transactions in memory does not wait; the loaded ones are merged in behind
+ * them in timestamp order.
+ *
+ * Each history list is ordered by timestamp and then transaction id, and a
+ * page cursor names the oldest row it returned by that pair, so paging stays
+ * correct when a row with an earlier timestamp is inserted between pages.
+ *
+ * A journal whose header is damaged, or a legacy transactions.dat that
+ * cannot be migrated, fails construction rather than starting with an empty
+ * history that new rows would then be appended to. The legacy migration runs
+ * in the constructor for that reason; it happens once.
+ */
 public class TransactionService {
-    private List<Transaction> transactions;
+
+    private static final Log LOG = Log.get(TransactionService.class);
+
+    // Per-account history, oldest first
+    private final Map<String, List<Transaction>> accountIndex = new ConcurrentHashMap<>();
+    private final Map<String, AccountTotals> accountTotals = new ConcurrentHashMap<>();
+    private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+    private final AtomicBoolean loadStarted = new AtomicBoolean();
+    private final LongAdder indexed = new LongAdder();
     private FileManager fileManager;
-    private static final String TRANSACTIONS_FILE = "data/transactions.dat";
+    private TransactionJournal journal;
+    private final String transactionsFile;
+    private static final String TRANSACTIONS_FILE = "transactions.dat";
+    private static final String JOURNAL_FILE = "transactions.journal";
     
     public TransactionService() {
+        this("data");
+    }
+    
+    public TransactionService(String dataDirectory) {
         fileManager = new FileManager();
-        loadTransactions();
+        transactionsFile = new File(dataDirectory, TRANSACTIONS_FILE).getPath();
+        journal = new TransactionJournal(new File(dataDirectory, JOURNAL_FILE).getPath());
+        try {
+            journal.checkHeader();
+            fileManager.migrateTransactionsToJournal(transactionsFile, journal);
+        } catch (IOException e) {
+            throw new IllegalStateException("Transaction history cannot be read: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Starts reading the history on disk on a background thread, if not already started.
+     */
+    public void loadInBackground() {
+        if (loadStarted.compareAndSet(false, true)) {
+            Thread loader = new Thread(this::loadTransactions, "transaction-loader");
+            loader.setDaemon(true);
+            loader.start();
+        }
+    }
+    
+    /**
+     * Whether the history on disk has been read in; until then queries wait.
+     */
+    public boolean isLoaded() {
+        return loaded.isDone();
+    }
+    
+    /**
+     * Blocks until the history on disk has been read in, starting the load if need be.
+     *
+     * @throws IllegalStateException if the journal could not be read
+     */
+    public void awaitLoaded() {
+        loadInBackground();
+        try {
+            loaded.join();
+        } catch (CompletionException e) {
+            // Always an IllegalStateException, see loadTransactions
+            throw (IllegalStateException) e.getCause();
+        }
     }
     
     public boolean recordTransaction(Transaction transaction) {
         if (transaction == null) return false;
-        transactions.add(transaction);
-        return saveTransactions();
+        if (!historyAvailable()) return false;
+        try {
+            journal.append(transaction);
+        } catch (IOException e) {
+            LOG.error("Error recording transaction: {}", e.getMessage());
+            return false;
+        }
+        indexTransaction(transaction);
+        return true;
+    }
+    
+    /**
+     * Makes transactions visible to queries and totals without journaling them.
+     * Used for rows covered by a write-ahead log record that is not durable
+     * yet; the caller journals them with {@link #journalTransactions} once it is.
+     */
+    void indexTransactions(List<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            indexTransaction(transaction);
+        }
+    }
+    
+    /**
+     * Removes transactions indexed with {@link #indexTransactions} whose
+     * write-ahead log record could not be synced.
+     */
+    void unindexTransactions(List<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            List<Transaction> history = accountIndex.get(transaction.getAccountNumber());
+            if (history == null) {
+                continue;
+            }
+            boolean removed = false;
+            synchronized (history) {
+                for (int i = lowerBound(history, timeOf(transaction)); i < history.size(); i++) {
+                    if (history.get(i) == transaction) {
+                        history.remove(i);
+                        removed = true;
+                        break;
+                    }
+                    if (timeOf(history.get(i)) != timeOf(transaction)) {
+                        break;
+                    }
+                }
+            }
+            if (removed) {
+                indexed.decrement();
+                accountTotals.get(transaction.getAccountNumber()).remove(transaction);
+            }
+        }
+    }
+    
+    /**
+     * Appends already indexed transactions to the journal.
+     */
+    boolean journalTransactions(List<Transaction> transactions) {
+        if (!historyAvailable()) return false;
+        try {
+            journal.appendAll(transactions);
+            return true;
+        } catch (IOException e) {
+            LOG.error("Error recording transaction: {}", e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Checks whether a transaction with the same id is already recorded for its account.
+     */
+    public boolean hasTransaction(Transaction transaction) {
+        awaitLoaded();
+        List<Transaction> history = accountIndex.get(transaction.getAccountNumber());
+        if (history == null) {
+            return false;
+        }
+        synchronized (history) {
+            for (int i = lowerBound(history, timeOf(transaction)); i < history.size(); i++) {
+                Transaction candidate = history.get(i);
+                if (timeOf(candidate) != timeOf(transaction)) {
+                    break;
+                }
+                if (Objects.equals(candidate.getTransactionId(), transaction.getTransactionId())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Forces all recorded transactions to disk.
+     */
+    public boolean sync() {
+        if (!historyAvailable()) return false;
+        try {
+            journal.sync();
+            return true;
+        } catch (IOException e) {
+            LOG.error("Error syncing transaction journal: {}", e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Transactions in memory so far; grows while the history is still loading.
+     */
+    public long getTransactionCount() {
+        return indexed.sum();
+    }
+    
+    public long getJournalBytes() {
+        return journal.length();
     }
     
     public List<Transaction> getTransactionsByAccount(String accountNumber) {
-        return transactions.stream()
-                .filter(t -> t.getAccountNumber().equals(accountNumber))
-                .sorted((t1, t2) -> t2.getTimestamp().compareTo(t1.getTimestamp()))
-                .collect(Collectors.toList());
+        return query(TransactionQuery.forAccount(accountNumber)).getTransactions();
     }
     
     public List<Transaction> getRecentTransactions(String accountNumber, int limit) {
-        return getTransactionsByAccount(accountNumber).stream()
-                .limit(limit)
-                .collect(Collectors.toList());
+        return query(TransactionQuery.forAccount(accountNumber).limit(limit)).getTransactions();
+    }
+    
+    /**
+     * Runs a history query against the per-account index. The time bounds are
+     * located by binary search, so the cost is O(log n + page size).
+     */
+    public TransactionPage query(TransactionQuery query) {
+        awaitLoaded();
+        List<Transaction> history = accountIndex.get(query.getAccountNumber());
+        if (history == null) {
+            return new TransactionPage(new ArrayList<>(), null);
+        }
+        
+        synchronized (history) {
+            int low = query.getFrom() != null ? lowerBound(history, query.getFrom().getTime()) : 0;
+            int high = query.getTo() != null ? upperBound(history, query.getTo().getTime()) : history.size();
+            if (query.getCursor() != null) {
+                high = Math.min(high, cursorBound(history, query.getCursor()));
+            }
+            if (high <= low) {
+                return new TransactionPage(new ArrayList<>(), null);
+            }
+            
+            int start = Math.max(low, high - query.getLimit());
+            List<Transaction> page = new ArrayList<>(high - start);
+            for (int i = high - 1; i >= start; i--) {
+                page.add(history.get(i));
+            }
+            return new TransactionPage(page, start > low ? cursorOf(history.get(start)) : null);
+        }
     }
     
-    public double getTotalDeposited(String accountNumber) {
-        return transactions.stream()
-                .filter(t -> t.getAccountNumber().equals(accountNumber))
-                .filter(t -> t.getType() == Transaction.TransactionType.DEPOSIT || 
-                           t.getType() == Transaction.TransactionType.TRANSFER_IN)
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+    public Money getTotalDeposited(String accountNumber) {
+        awaitLoaded();
+        AccountTotals totals = accountTotals.get(accountNumber);
+        return Money.ofMinor(totals != null ? totals.getTotalCredited() : 0L);
     }
     
-    public double getTotalWithdrawn(String accountNumber) {
-        return transactions.stream()
-                .filter(t -> t.getAccountNumber().equals(accountNumber))
-                .filter(t -> t.getType() == Transaction.TransactionType.WITHDRAWAL || 
-                           t.getType() == Transaction.TransactionType.TRANSFER_OUT)
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+    public Money getTotalWithdrawn(String accountNumber) {
+        awaitLoaded();
+        AccountTotals totals = accountTotals.get(accountNumber);
+        return Money.ofMinor(totals != null ? totals.getTotalDebited() : 0L);
     }
     
+    public Money getTotal(String accountNumber, Transaction.TransactionType type) {
+        awaitLoaded();
+        AccountTotals totals = accountTotals.get(accountNumber);
+        return Money.ofMinor(totals != null ? totals.getAmount(type) : 0L);
+    }
+    
+    public Money getMonthlyTotal(String accountNumber, Transaction.TransactionType type, YearMonth month) {
+        awaitLoaded();
+        AccountTotals totals = accountTotals.get(accountNumber);
+        return Money.ofMinor(totals != null ? totals.getMonthlyAmount(type, month) : 0L);
+    }
+    
+    /**
+     * Recomputes every account's totals from the full history and compares them
+     * with the running aggregates. Returns one message per mismatch; an empty
+     * list means the aggregates are consistent.
+     */
+    public List<String> verifyAggregates() {
+        awaitLoaded();
+        Map<String, AccountTotals> recomputed = new HashMap<>();
+        for (List<Transaction> history : accountIndex.values()) {
+            synchronized (history) {
+                for (Transaction transaction : history) {
+                    recomputed.computeIfAbsent(transaction.getAccountNumber(), k -> new AccountTotals())
+                            .add(transaction);
+                }
+            }
+        }
+        
+        List<String> mismatches = new ArrayList<>();
+        Set<String> accountNumbers = new HashSet<>(recomputed.keySet());
+        accountNumbers.addAll(accountTotals.keySet());
+        for (String accountNumber : accountNumbers) {
+            AccountTotals expected = recomputed.getOrDefault(accountNumber, new AccountTotals());
+            AccountTotals actual = accountTotals.getOrDefault(accountNumber, new AccountTotals());
+            for (Transaction.TransactionType type : Transaction.TransactionType.values()) {
+                if (expected.getAmount(type) != actual.getAmount(type)
+                        || expected.getCount(type) != actual.getCount(type)) {
+                    mismatches.add(accountNumber + " " + type.name() + ": expected " 
+                            + Money.format(expected.getAmount(type)) + " (" + expected.getCount(type) + " rows), found " 
+                            + Money.format(actual.getAmount(type)) + " (" + actual.getCount(type) + " rows)");
+                }
+            }
+        }
+        return mismatches;
+    }
+    
+    /**
+     * Returns a cursor over the query result that fetches one page at a time.
+     */
+    public TransactionCursor openCursor(TransactionQuery query) {
+        return new TransactionCursor(this, query, TransactionCursor.DEFAULT_PAGE_SIZE);
+    }
+    
+    /**
+     * Exports an account's history, newest first, streaming it page by page.
+     */
     public boolean exportTransactionsToCSV(String accountNumber, String filename) {
-        List<Transaction> accountTransactions = getTransactionsByAccount(accountNumber);
-        return fileManager.exportTransactionsToCSV(accountTransactions, filename);
+        return fileManager.exportTransactionsToCSV(openCursor(TransactionQuery.forAccount(accountNumber)), filename);
     }
     
     private void loadTransactions() {
-        transactions = fileManager.loadTransactions(TRANSACTIONS_FILE);
-        if (transactions == null) {
-            transactions = new ArrayList<>();
+        try {
+            for (Transaction transaction : journal.readAll()) {
+                indexTransaction(transaction);
+            }
+            loaded.complete(null);
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Error loading transaction journal: {}", e.getMessage());
+            loaded.completeExceptionally(new IllegalStateException(
+                    "Transaction history could not be loaded: " + e.getMessage(), e));
+        } finally {
+            // Never leave callers waiting
+            if (!loaded.isDone()) {
+                loaded.completeExceptionally(new IllegalStateException("Transaction history could not be loaded"));
+            }
+        }
+    }
+    
+    // Waits for the load; false, after logging it, if the history could not be read
+    private boolean historyAvailable() {
+        try {
+            awaitLoaded();
+            return true;
+        } catch (IllegalStateException e) {
+            LOG.error("Transaction journal is unavailable: {}", e.getMessage());
+            return false;
+        }
+    }
+    
+    private void indexTransaction(Transaction transaction) {
+        indexed.increment();
+        accountTotals.computeIfAbsent(transaction.getAccountNumber(), k -> new AccountTotals())
+                .add(transaction);
+        
+        List<Transaction> history = accountIndex.computeIfAbsent(
+                transaction.getAccountNumber(), k -> new ArrayList<>());
+        long time = timeOf(transaction);
+        String id = idOf(transaction);
+        synchronized (history) {
+            if (history.isEmpty() || compare(history.get(history.size() - 1), time, id) <= 0) {
+                history.add(transaction);
+            } else {
+                // Out-of-order key (e.g. clock adjustment); keep the list sorted
+                history.add(upperBound(history, time, id), transaction);
+            }
+        }
+    }
+    
+    // First index whose timestamp is >= time
+    private static int lowerBound(List<Transaction> history, long time) {
+        int low = 0, high = history.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timeOf(history.get(mid)) < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
         }
+        return low;
     }
     
-    private boolean saveTransactions() {
-        return fileManager.saveTransactions(transactions, TRANSACTIONS_FILE);
+    // First index whose timestamp is > time
+    private static int upperBound(List<Transaction> history, long time) {
+        int low = 0, high = history.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timeOf(history.get(mid)) <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    // First index whose (timestamp, id) is > (time, id)
+    private static int upperBound(List<Transaction> history, long time, String id) {
+        int low = lowerBound(history, time), high = upperBound(history, time);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(history.get(mid), time, id) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    // First index whose (timestamp, id) is >= (time, id)
+    private static int lowerBound(List<Transaction> history, long time, String id) {
+        int low = lowerBound(history, time), high = upperBound(history, time);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(history.get(mid), time, id) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    private static int compare(Transaction transaction, long time, String id) {
+        int byTime = Long.compare(timeOf(transaction), time);
+        return byTime != 0 ? byTime : idOf(transaction).compareTo(id);
+    }
+    
+    private static long timeOf(Transaction transaction) {
+        return transaction.getTimestamp() != null ? transaction.getTimestamp().getTime() : Long.MIN_VALUE;
+    }
+    
+    private static String idOf(Transaction transaction) {
+        return transaction.getTransactionId() != null ? transaction.getTransactionId() : "";
+    }
+    
+    // "<timestamp>:<transaction id>" of the oldest row on a page
+    private static String cursorOf(Transaction transaction) {
+        return timeOf(transaction) + ":" + idOf(transaction);
+    }
+    
+    // Index of the first row at or after the cursor's key; the next page ends before it
+    private static int cursorBound(List<Transaction> history, String cursor) {
+        int separator = cursor.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        try {
+            long time = Long.parseLong(cursor.substring(0, separator));
+            return lowerBound(history, time, cursor.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
     }
 }
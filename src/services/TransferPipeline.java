@@ -0,0 +1,221 @@
+package services;
+
+import models.Money;
+import utils.IdGenerators;
+import utils.LatencyStats;
+import utils.Metrics;
+import utils.ValidationUtils;
+
+import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous transfers. Each transfer passes through five stages, each on
+ * its own executor, so the caller never waits for the disk and many
+ * transfers can be in flight at once:
+ *
+ * <ol>
+ *   <li>validate - amount and accounts, without taking any lock</li>
+ *   <li>reserve - re-checks funds under the account locks, logs the transfer
+ *       to the write-ahead log and applies it in memory</li>
+ *   <li>journal - waits for the group commit that makes the log record durable</li>
+ *   <li>apply - writes the balances and transactions through to storage</li>
+ *   <li>notify - completes the caller's future</li>
+ * </ol>
+ *
+ * The first four stages are single-threaded and hand over in FIFO order, so
+ * transfers are reserved, and therefore applied to each account, in
+ * submission order. A single reserve thread is enough because reserving
+ * only touches memory and the log buffer; the time goes into the fsync,
+ * which one group commit shares across every transfer waiting in the
+ * journal stage. At most {@code capacity} transfers may be in flight;
+ * {@link #submit} blocks when the pipeline is full.
+ */
+public class TransferPipeline implements Closeable {
+
+    private static final LatencyStats TRANSFER_LATENCY = Metrics.latency("account.transferAsync");
+    private static final int DEFAULT_CAPACITY = Integer.getInteger("banking.transfer.maxInFlight", 1024);
+
+    /**
+     * One transfer moving through the stages. Written by one stage at a time.
+     */
+    static final class Ticket {
+        final PostingInstruction instruction;
+        final long[] ids = new long[2];
+        final long submittedNanos = System.nanoTime();
+        PostingResult.Status status;
+        WriteAheadLog.Record record;
+        long lsn = -1;
+        boolean durable;
+
+        Ticket(PostingInstruction instruction) {
+            this.instruction = instruction;
+        }
+    }
+
+    private final AccountService service;
+    private final int maxInFlight;
+    private final Semaphore capacity;
+    private final ExecutorService validateExecutor = singleThread("transfer-validate");
+    private final ExecutorService reserveExecutor = singleThread("transfer-reserve");
+    private final ExecutorService journalExecutor = singleThread("transfer-journal");
+    private final ExecutorService applyExecutor = singleThread("transfer-apply");
+    private final ExecutorService notifyExecutor = Executors.newFixedThreadPool(2, daemonThreads("transfer-notify"));
+    private volatile boolean closed;
+
+    public TransferPipeline(AccountService service) {
+        this(service, DEFAULT_CAPACITY);
+    }
+
+    public TransferPipeline(AccountService service, int capacity) {
+        this.service = service;
+        this.maxInFlight = capacity;
+        this.capacity = new Semaphore(capacity);
+    }
+
+    /**
+     * Queues a transfer. Blocks while the pipeline is full; otherwise returns
+     * at once with a future that completes (on a pipeline thread) once the
+     * transfer has been rejected or written to disk.
+     */
+    public CompletableFuture<TransferResult> submit(String fromAccountNumber, String toAccountNumber,
+                                                    Money amount, String description) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Transfer pipeline is closed"));
+        }
+        try {
+            capacity.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        Ticket ticket = new Ticket(PostingInstruction.transfer(fromAccountNumber, toAccountNumber, amount, description));
+        try {
+            return CompletableFuture.runAsync(() -> validate(ticket), validateExecutor)
+                    .thenRunAsync(() -> reserve(ticket), reserveExecutor)
+                    .thenRunAsync(() -> journal(ticket), journalExecutor)
+                    // Runs even if an earlier stage failed so an in-flight ticket is always released
+                    .handleAsync((ignored, error) -> apply(ticket, error), applyExecutor)
+                    .thenComposeAsync(error -> complete(ticket, error), notifyExecutor);
+        } catch (RejectedExecutionException e) {
+            // Closed while this transfer was being submitted
+            capacity.release();
+            return CompletableFuture.failedFuture(new IllegalStateException("Transfer pipeline is closed"));
+        }
+    }
+
+    /**
+     * Transfers submitted but not yet completed.
+     */
+    public int getInFlight() {
+        return maxInFlight - capacity.availablePermits();
+    }
+
+    /**
+     * Stops accepting transfers and waits for those already submitted to complete.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        // Upstream first: each stage only hands work downstream
+        for (ExecutorService executor : new ExecutorService[] {
+                validateExecutor, reserveExecutor, journalExecutor, applyExecutor, notifyExecutor}) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void validate(Ticket ticket) {
+        PostingInstruction instruction = ticket.instruction;
+        if (!ValidationUtils.isValidAmount(instruction.getAmount())) {
+            ticket.status = PostingResult.Status.INVALID_AMOUNT;
+        } else if (instruction.getAccountNumber() == null || instruction.getToAccountNumber() == null) {
+            ticket.status = PostingResult.Status.ACCOUNT_NOT_FOUND;
+        } else if (instruction.getAccountNumber().equals(instruction.getToAccountNumber())) {
+            ticket.status = PostingResult.Status.SAME_ACCOUNT;
+        } else if (service.getAccountByNumber(instruction.getAccountNumber()) == null
+                || service.getAccountByNumber(instruction.getToAccountNumber()) == null) {
+            ticket.status = PostingResult.Status.ACCOUNT_NOT_FOUND;
+        } else {
+            IdGenerators.transactions().nextIds(ticket.ids);
+        }
+    }
+
+    private void reserve(Ticket ticket) {
+        if (ticket.status == null) {
+            service.reserveTransfer(ticket);
+        }
+    }
+
+    private void journal(Ticket ticket) {
+        if (ticket.lsn >= 0) {
+            ticket.durable = service.awaitDurable(ticket.lsn);
+        }
+    }
+
+    // Returns the first failure of this or an earlier stage, if any
+    private Throwable apply(Ticket ticket, Throwable upstream) {
+        Throwable error = upstream instanceof CompletionException && upstream.getCause() != null
+                ? upstream.getCause() : upstream;
+        if (ticket.lsn < 0) {
+            return error;
+        }
+        try {
+            if (ticket.durable) {
+                service.writeThrough(ticket.lsn, ticket.record);
+            } else {
+                service.rollBack(ticket.record);
+                ticket.status = PostingResult.Status.NOT_LOGGED;
+            }
+        } catch (RuntimeException e) {
+            ticket.durable = false;
+            error = e;
+        } finally {
+            service.finishAsync();
+        }
+        return error;
+    }
+
+    private CompletableFuture<TransferResult> complete(Ticket ticket, Throwable error) {
+        capacity.release();
+        if (ticket.lsn >= 0) {
+            service.checkpointIfDue();
+        }
+        if (error != null) {
+            return CompletableFuture.failedFuture(error);
+        }
+        PostingResult.Status status = ticket.status != null ? ticket.status : PostingResult.Status.NOT_LOGGED;
+        String transactionId = status == PostingResult.Status.POSTED ? "TXN" + ticket.ids[0] : null;
+        long elapsedNanos = System.nanoTime() - ticket.submittedNanos;
+        TRANSFER_LATENCY.record(elapsedNanos);
+        long elapsedMicros = elapsedNanos / 1000;
+        return CompletableFuture.completedFuture(new TransferResult(status, ticket.durable, transactionId, elapsedMicros));
+    }
+
+    private static ExecutorService singleThread(String name) {
+        return Executors.newSingleThreadExecutor(daemonThreads(name));
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, count.getAndIncrement() == 0 ? name : name + "-" + count.get());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
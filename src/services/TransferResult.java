@@ -0,0 +1,58 @@
+package services;
+
+/**
+ * Outcome of a transfer submitted to the {@link TransferPipeline}.
+ */
+public class TransferResult {
+    private final PostingResult.Status status;
+    private final boolean durable;
+    private final String transactionId;
+    private final long elapsedMicros;
+
+    TransferResult(PostingResult.Status status, boolean durable, String transactionId, long elapsedMicros) {
+        this.status = status;
+        this.durable = durable;
+        this.transactionId = transactionId;
+        this.elapsedMicros = elapsedMicros;
+    }
+
+    /**
+     * Whether the transfer was accepted and is on disk.
+     */
+    public boolean isSuccessful() {
+        return status == PostingResult.Status.POSTED && durable;
+    }
+
+    /**
+     * Why the transfer was accepted or rejected. POSTED with
+     * {@link #isDurable()} false means it was applied but could not be synced.
+     */
+    public PostingResult.Status getStatus() {
+        return status;
+    }
+
+    public boolean isDurable() {
+        return durable;
+    }
+
+    /**
+     * Id of the debit transaction; null unless posted.
+     */
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    /**
+     * Time from submission to completion.
+     */
+    public long getElapsedMicros() {
+        return elapsedMicros;
+    }
+
+    public String getMessage() {
+        if (status == PostingResult.Status.POSTED && !durable) {
+            return "Transfer could not be saved";
+        }
+        return status.getMessage();
+    }
+}
@@ -0,0 +1,484 @@
+package services;
+
+import models.Account;
+import models.Money;
+import models.Transaction;
+import utils.Log;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log for balance mutations.
+ *
+ * Each record holds the new absolute balance of every account touched by one
+ * logical operation together with the Transaction rows it produced, so a
+ * deposit or a transfer is durable (or not) as a unit. Replaying a record is
+ * idempotent. A record can also carry the accounts it opens (from version 3),
+ * so new accounts and their opening deposits are durable together. Records
+ * are framed like the transaction journal:
+ * [int payloadLength][int crc32(payload)][payload].
+ *
+ * Durability uses group commit: {@link #commit(Record)} returns once the record
+ * has been fsynced, but a single fsync covers every record written since the
+ * previous one. A sync happens when {@code groupCommitRecords} records are
+ * pending or {@code groupCommitMillis} have elapsed, whichever comes first.
+ * With {@code groupCommitMillis == 0} every commit syncs inline.
+ *
+ * A failed write or fsync is fatal to the log: after it the kernel may have
+ * dropped the unsynced pages, so a later fsync that succeeds proves nothing.
+ * The file is cut back to the last synced record, every waiting and later
+ * commit fails, and the log stays unusable until it is reopened on restart.
+ */
+public class WriteAheadLog implements Closeable {
+
+    private static final Log LOG = Log.get(WriteAheadLog.class);
+
+    private static final int MAGIC = 0x4257414C; // "BWAL"
+    // Version 1 stored balances as double; version 2 stores paise as long
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 16 << 20;
+
+    /**
+     * One logical balance mutation: new balances plus the rows to record,
+     * and any accounts it opens.
+     */
+    public static class Record {
+        private final Map<String, Long> balances = new LinkedHashMap<>();
+        private final List<Transaction> transactions = new ArrayList<>();
+        private final List<Account> openedAccounts = new ArrayList<>();
+
+        public Record setBalance(String accountNumber, long balanceMinor) {
+            balances.put(accountNumber, balanceMinor);
+            return this;
+        }
+
+        public Record addTransaction(Transaction transaction) {
+            transactions.add(transaction);
+            return this;
+        }
+
+        public Record openAccount(Account account) {
+            openedAccounts.add(account);
+            return this;
+        }
+
+        public Map<String, Long> getBalances() {
+            return balances;
+        }
+
+        public List<Transaction> getTransactions() {
+            return transactions;
+        }
+
+        public List<Account> getOpenedAccounts() {
+            return openedAccounts;
+        }
+    }
+
+    private final File file;
+    private final int groupCommitRecords;
+    private final long groupCommitMillis;
+
+    private FileOutputStream fileOut;
+    private DataOutputStream out;
+    private final RecordBuffer scratch = new RecordBuffer(256, 1 << 20);
+    private long writtenLsn;
+    private long durableLsn;
+    // File length after the last written and the last synced record
+    private long writtenLength;
+    private long durableLength;
+    private long recordsSinceCheckpoint;
+    // First write or sync error; once set the log rejects everything (see fail)
+    private IOException syncFailure;
+    private Thread flusher;
+    private volatile boolean closed;
+
+    public WriteAheadLog(String filename, int groupCommitRecords, long groupCommitMillis) {
+        if (groupCommitRecords < 1 || groupCommitMillis < 0) {
+            throw new IllegalArgumentException("Invalid group commit settings");
+        }
+        this.file = new File(filename);
+        this.groupCommitRecords = groupCommitRecords;
+        this.groupCommitMillis = groupCommitMillis;
+    }
+
+    /**
+     * Reads every intact record. A torn or corrupt tail is truncated.
+     */
+    public synchronized List<Record> readAll() throws IOException {
+        List<Record> records = new ArrayList<>();
+        if (!file.exists() || file.length() == 0) {
+            return records;
+        }
+
+        long validLength = HEADER_SIZE;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+
+            int version = readHeader(in);
+
+            CRC32 crc = new CRC32();
+            while (true) {
+                byte[] payload;
+                int checksum;
+                try {
+                    int length = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_SIZE) {
+                        break;
+                    }
+                    checksum = in.readInt();
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload, 0, payload.length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                records.add(decode(new DataInputStream(new ByteArrayInputStream(payload)), version));
+                validLength += 8 + payload.length;
+            }
+        }
+
+        if (validLength < file.length()) {
+            LOG.warn("Write-ahead log has a damaged tail, truncating to {} bytes", validLength);
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Appends a record and blocks until it is durable.
+     */
+    public void commit(Record record) throws IOException {
+        awaitDurable(append(record));
+    }
+
+    /**
+     * Appends a record to the log buffer without waiting for it to be synced.
+     * Returns its log sequence number for {@link #awaitDurable(long)}.
+     */
+    public synchronized long append(Record record) throws IOException {
+        if (closed) {
+            throw new IOException("Write-ahead log is closed");
+        }
+        checkNotFailed();
+        ensureOpen();
+
+        encode(scratch.startRecord(), record);
+        int length = scratch.size();
+        try {
+            scratch.writeRecordTo(out);
+        } catch (IOException e) {
+            fail(e);
+            throw e;
+        }
+
+        long lsn = ++writtenLsn;
+        writtenLength += 8 + length;
+        recordsSinceCheckpoint++;
+        if (groupCommitMillis == 0) {
+            syncLocked();
+        } else if (writtenLsn - durableLsn >= groupCommitRecords) {
+            notifyAll();
+        }
+        return lsn;
+    }
+
+    /**
+     * Blocks until the record with the given sequence number has been fsynced.
+     */
+    public synchronized void awaitDurable(long lsn) throws IOException {
+        boolean interrupted = false;
+        while (durableLsn < lsn) {
+            checkNotFailed();
+            if (closed) {
+                throw new IOException("Write-ahead log closed before record was synced");
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public synchronized long getRecordsSinceCheckpoint() {
+        return recordsSinceCheckpoint;
+    }
+
+    /**
+     * Size of the log file in bytes, as far as it has been flushed.
+     */
+    public long length() {
+        return file.length();
+    }
+
+    /**
+     * Discards all records. Called after a checkpoint has made their effects
+     * durable in the account snapshot and the transaction journal.
+     */
+    public synchronized void truncate() throws IOException {
+        checkNotFailed();
+        if (out != null) {
+            syncLocked();
+            try {
+                fileOut.getChannel().truncate(0);
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.flush();
+                fileOut.getFD().sync();
+            } catch (IOException e) {
+                fail(e);
+                throw e;
+            }
+            writtenLength = HEADER_SIZE;
+            durableLength = HEADER_SIZE;
+        } else if (file.exists()) {
+            // Emptied completely; ensureOpen writes a current-version header
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(0);
+            }
+        }
+        recordsSinceCheckpoint = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        Thread flushThread;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (out != null && syncFailure == null) {
+                syncLocked();
+            }
+            closed = true;
+            flushThread = flusher;
+            notifyAll();
+        }
+        if (flushThread != null) {
+            try {
+                flushThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (out != null) {
+                // After a failure the buffer holds records that must not reach the file
+                (syncFailure == null ? out : fileOut).close();
+                out = null;
+                fileOut = null;
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (out != null) {
+            return;
+        }
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        boolean isNew = !file.exists() || file.length() == 0;
+        if (!isNew) {
+            // Records appended after a damaged or older header could never be replayed
+            int version;
+            try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                version = readHeader(in);
+            }
+            if (version != VERSION) {
+                throw new IOException("Refusing to append to version " + version + " write-ahead log " + file);
+            }
+        }
+        fileOut = new FileOutputStream(file, true);
+        out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16));
+        writtenLength = file.length();
+        durableLength = writtenLength;
+        if (isNew) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writtenLength += HEADER_SIZE;
+        }
+
+        if (groupCommitMillis > 0 && flusher == null) {
+            flusher = new Thread(this::runFlusher, "wal-group-commit");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+    }
+
+    private int readHeader(DataInputStream in) throws IOException {
+        int magic;
+        int version;
+        try {
+            magic = in.readInt();
+            version = in.readInt();
+        } catch (EOFException e) {
+            throw new IOException("Write-ahead log header is truncated: " + file);
+        }
+        if (magic != MAGIC) {
+            throw new IOException("Not a write-ahead log: " + file);
+        }
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported write-ahead log version " + version + ": " + file);
+        }
+        return version;
+    }
+
+    private void runFlusher() {
+        while (true) {
+            long target;
+            long targetLength;
+            FileDescriptor fd;
+            synchronized (this) {
+                try {
+                    if (!closed && writtenLsn - durableLsn < groupCommitRecords) {
+                        wait(groupCommitMillis);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (closed || syncFailure != null) {
+                    return;
+                }
+                if (writtenLsn == durableLsn || out == null) {
+                    continue;
+                }
+                try {
+                    out.flush();
+                    fd = fileOut.getFD();
+                } catch (IOException e) {
+                    fail(e);
+                    return;
+                }
+                target = writtenLsn;
+                targetLength = writtenLength;
+            }
+
+            // fsync outside the monitor so writers can keep filling the next batch
+            try {
+                fd.sync();
+            } catch (IOException e) {
+                synchronized (this) {
+                    if (!closed) {
+                        fail(e);
+                    }
+                    notifyAll();
+                }
+                return;
+            }
+            synchronized (this) {
+                if (target > durableLsn) {
+                    durableLsn = target;
+                    durableLength = targetLength;
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    private void syncLocked() throws IOException {
+        checkNotFailed();
+        try {
+            out.flush();
+            fileOut.getFD().sync();
+        } catch (IOException e) {
+            fail(e);
+            throw e;
+        }
+        durableLsn = writtenLsn;
+        durableLength = writtenLength;
+        notifyAll();
+    }
+
+    private void checkNotFailed() throws IOException {
+        if (syncFailure != null) {
+            throw new IOException("Write-ahead log failed and rejects writes until restart", syncFailure);
+        }
+    }
+
+    /**
+     * Makes the log unusable after a write or sync error and wakes every
+     * waiting commit, which then fails. The file is cut back to the last
+     * synced record so the records whose callers were told they failed are
+     * not replayed on restart.
+     */
+    private void fail(IOException e) {
+        if (syncFailure != null) {
+            return;
+        }
+        syncFailure = e;
+        LOG.error("Write-ahead log failed, rejecting writes until restart: {}", e.getMessage());
+        try {
+            fileOut.getChannel().truncate(durableLength);
+        } catch (IOException truncateError) {
+            LOG.error("Could not cut the write-ahead log back to its last synced record: {}",
+                    truncateError.getMessage());
+        }
+        notifyAll();
+    }
+
+    private static void encode(DataOutputStream out, Record record) throws IOException {
+        out.writeInt(record.balances.size());
+        for (Map.Entry<String, Long> entry : record.balances.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+        out.writeInt(record.transactions.size());
+        for (Transaction transaction : record.transactions) {
+            TransactionJournal.encode(out, transaction);
+        }
+        // Opened accounts are rare and carry every field, so plain serialization will do
+        if (record.openedAccounts.isEmpty()) {
+            out.writeInt(0);
+        } else {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream accounts = new ObjectOutputStream(bytes)) {
+                accounts.writeObject(new ArrayList<>(record.openedAccounts));
+            }
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+        }
+    }
+
+    private static Record decode(DataInputStream in, int version) throws IOException {
+        Record record = new Record();
+        int balanceCount = in.readInt();
+        for (int i = 0; i < balanceCount; i++) {
+            String accountNumber = in.readUTF();
+            record.setBalance(accountNumber, version >= 2 ? in.readLong() : Money.toMinor(in.readDouble()));
+        }
+        int transactionCount = in.readInt();
+        for (int i = 0; i < transactionCount; i++) {
+            record.addTransaction(TransactionJournal.decode(in, version));
+        }
+        int accountBytes = version >= 3 ? in.readInt() : 0;
+        if (accountBytes > 0) {
+            byte[] bytes = new byte[accountBytes];
+            in.readFully(bytes);
+            try (ObjectInputStream accounts = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                for (Object account : (List<?>) accounts.readObject()) {
+                    record.openAccount((Account) account);
+                }
+            } catch (ClassNotFoundException | ClassCastException e) {
+                throw new IOException("Invalid opened accounts in write-ahead log record", e);
+            }
+        }
+        return record;
+    }
+}
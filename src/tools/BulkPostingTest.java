@@ -0,0 +1,111 @@
+package tools;
+
+import models.Account;
+import models.Money;
+import services.AccountService;
+import services.PostingInstruction;
+import services.PostingReport;
+import services.PostingResult;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Throughput and consistency check for AccountService.postBatch.
+ *
+ * Posts random deposits, withdrawals and transfers in batches against a
+ * scratch data directory, printing the rate of each batch (the first ones
+ * include JIT warm-up), then checks that balances moved by exactly the
+ * posted amounts, that every balance matches its own transaction history, and
+ * that a fresh service recovered from disk sees the same totals.
+ *
+ * Usage: java tools.BulkPostingTest [postings] [accounts] [batchSize]
+ */
+public class BulkPostingTest {
+
+    private static final Money OPENING_BALANCE = Money.ofMajor(1000);
+
+    public static void main(String[] args) throws Exception {
+        Harness.useCheapPinHashing();
+        int postings = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int accountCount = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+
+        File dataDir = Files.createTempDirectory("banking-postings").toFile();
+        System.out.println("Data directory: " + dataDir);
+
+        AccountService service = new AccountService(dataDir.getPath());
+        List<String> accountNumbers = Harness.openAccounts(service, "Posting User", accountCount, OPENING_BALANCE, "1234");
+        long expectedTotal = totalBalance(service);
+
+        Random random = new Random(42);
+        List<PostingInstruction> instructions = new ArrayList<>(postings);
+        for (int i = 0; i < postings; i++) {
+            String account = accountNumbers.get(random.nextInt(accountCount));
+            Money amount = Money.ofMinor(1 + random.nextInt(50_000));
+            int kind = random.nextInt(3);
+            if (kind == 0) {
+                instructions.add(PostingInstruction.deposit(account, amount, "Payroll credit"));
+            } else if (kind == 1) {
+                instructions.add(PostingInstruction.withdrawal(account, amount, "Direct debit"));
+            } else {
+                String to = accountNumbers.get(random.nextInt(accountCount));
+                instructions.add(PostingInstruction.transfer(account, to, amount, "Settlement"));
+            }
+        }
+
+        Map<PostingResult.Status, Integer> byStatus = new EnumMap<>(PostingResult.Status.class);
+        boolean committed = true;
+        int applied = 0;
+        long start = System.nanoTime();
+        for (int from = 0; from < postings; from += batchSize) {
+            List<PostingInstruction> slice = instructions.subList(from, Math.min(postings, from + batchSize));
+            long batchStart = System.nanoTime();
+            PostingReport report = service.postBatch(slice);
+            double batchSeconds = (System.nanoTime() - batchStart) / 1e9;
+            System.out.printf("  batch of %d: %.2fs (%.0f/s)%n", slice.size(), batchSeconds, slice.size() / batchSeconds);
+
+            committed &= report.isCommitted();
+            applied += report.getPostedCount();
+            for (PostingResult result : report.getResults()) {
+                byStatus.merge(result.getStatus(), 1, Integer::sum);
+                if (result.isPosted()) {
+                    PostingInstruction instruction = result.getInstruction();
+                    if (instruction.getType() == PostingInstruction.Type.DEPOSIT) {
+                        expectedTotal += instruction.getAmount().getMinorUnits();
+                    } else if (instruction.getType() == PostingInstruction.Type.WITHDRAWAL) {
+                        expectedTotal -= instruction.getAmount().getMinorUnits();
+                    }
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d postings, %d applied in %.2fs (%.0f/s)%n",
+                postings, applied, seconds, postings / seconds);
+        System.out.println("Outcomes: " + byStatus);
+
+        boolean ok = Harness.check("batches committed", 1, committed ? 1 : 0);
+        ok &= Harness.check("balances moved by the posted amounts", expectedTotal, totalBalance(service));
+        ok &= Harness.checkHistories(service, accountNumbers);
+
+        AccountService recovered = new AccountService(dataDir.getPath());
+        ok &= Harness.check("totals after reload", expectedTotal, totalBalance(recovered));
+
+        System.out.println(ok ? "PASSED" : "FAILED");
+        System.exit(ok ? 0 : 1);
+    }
+
+    // Includes accounts not opened by this run (e.g. the seeded test account)
+    private static long totalBalance(AccountService service) {
+        long total = 0;
+        for (Account account : service.getAllAccounts()) {
+            total += account.getBalanceMinor();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,96 @@
+package tools;
+
+import models.Account;
+import models.Money;
+import models.Transaction;
+import services.AccountService;
+import services.OnboardingReport;
+import services.OnboardingRequest;
+import services.OnboardingResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Fixture and assertion helpers shared by the check tools: scratch accounts
+ * opened in bulk, and the [ok]/[FAIL] lines each tool prints before PASSED
+ * or FAILED.
+ */
+final class Harness {
+
+    // One range for every tool, so accounts opened by different calls never share a phone number
+    private static final AtomicLong NEXT_PHONE = new AtomicLong(6_000_000_000L);
+
+    private Harness() {
+    }
+
+    /**
+     * Lowers the PIN hashing cost for scratch accounts unless
+     * {@code banking.pin.iterations} was set on the command line. Call before
+     * the first AccountService is created.
+     */
+    static void useCheapPinHashing() {
+        if (System.getProperty("banking.pin.iterations") == null) {
+            System.setProperty("banking.pin.iterations", "1000");
+        }
+    }
+
+    /**
+     * Opens {@code count} accounts in one onboarding batch and returns their
+     * numbers in order. Throws if any row is not created.
+     */
+    static List<String> openAccounts(AccountService service, String customerName, int count,
+                                     Money openingBalance, String pin) {
+        long firstPhone = NEXT_PHONE.getAndAdd(count);
+        OnboardingReport report = service.onboardAccounts(IntStream.range(0, count)
+                .mapToObj(i -> new OnboardingRequest(customerName, String.valueOf(firstPhone + i),
+                        "user" + (firstPhone + i) + "@example.com", customerName + " address " + i,
+                        Account.AccountType.SAVINGS, openingBalance, pin)));
+        List<String> numbers = new ArrayList<>(count);
+        for (OnboardingResult result : report.getResults()) {
+            if (!result.isCreated()) {
+                throw new IllegalStateException("Could not open scratch account, row "
+                        + result.getRow() + ": " + result.getMessage());
+            }
+            numbers.add(result.getAccountNumber());
+        }
+        return numbers;
+    }
+
+    /**
+     * Checks that each balance equals the opening deposit plus credits minus
+     * debits in its own history.
+     */
+    static boolean checkHistories(AccountService service, List<String> accountNumbers) {
+        int mismatches = 0;
+        for (String number : accountNumbers) {
+            long replayed = 0;
+            for (Transaction transaction : service.getTransactionService().getTransactionsByAccount(number)) {
+                switch (transaction.getType()) {
+                    case DEPOSIT:
+                    case TRANSFER_IN:
+                        replayed += transaction.getAmountMinor();
+                        break;
+                    case WITHDRAWAL:
+                    case TRANSFER_OUT:
+                        replayed -= transaction.getAmountMinor();
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (replayed != service.getAccountByNumber(number).getBalanceMinor()) {
+                mismatches++;
+            }
+        }
+        return check("balances match transaction history", 0, mismatches);
+    }
+
+    static boolean check(String name, long expected, long actual) {
+        boolean passed = expected == actual;
+        System.out.println((passed ? "[ok]   " : "[FAIL] ") + name + ": expected " + expected + ", got " + actual);
+        return passed;
+    }
+}
@@ -0,0 +1,113 @@
+package tools;
+
+import models.Account;
+import models.Money;
+import services.AccountService;
+import services.FileManager;
+import utils.LatencyStats;
+import utils.Metrics;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checkpoint cost with incremental snapshots on the default file backend.
+ *
+ * Opens a set of accounts in a scratch data directory, then repeatedly
+ * deposits into a few of them and checkpoints, and compares the time and bytes
+ * per checkpoint with a full rewrite of the snapshot. Finally it makes more
+ * deposits, opens a second service on the same directory without closing the
+ * first, as after a crash, and checks that snapshot, deltas and write-ahead
+ * log together give back every balance.
+ *
+ * Usage: java tools.IncrementalSnapshotTest [accounts] [checkpoints] [changes]
+ */
+public class IncrementalSnapshotTest {
+
+    public static void main(String[] args) throws Exception {
+        Harness.useCheapPinHashing();
+        int accountCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int checkpoints = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int changes = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+
+        File dataDir = Files.createTempDirectory("banking-snapshots").toFile();
+        System.out.println("Data directory: " + dataDir);
+
+        AccountService service = new AccountService(dataDir.getPath());
+        List<String> numbers = Harness.openAccounts(service, "Snapshot User", accountCount, Money.ofMajor(1000), "1234");
+        System.out.println("Opened " + numbers.size() + " accounts");
+
+        // Baseline: what every checkpoint cost before, a rewrite of all accounts
+        File fullFile = new File(dataDir, "full.dat");
+        FileManager fullWriter = new FileManager();
+        List<Account> all = service.getAllAccounts();
+        LatencyStats fullLatency = new LatencyStats();
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            fullWriter.saveAccounts(all, fullFile.getPath());
+            fullLatency.record(System.nanoTime() - start);
+        }
+        long fullBytes = fullFile.length();
+
+        Random random = new Random(42);
+        LatencyStats checkpointLatency = new LatencyStats();
+        long bytesBefore = Metrics.counter("accounts.store.bytesWritten").sum();
+        int maxDeltas = 0;
+        for (int c = 0; c < checkpoints; c++) {
+            deposit(service, numbers, changes, random);
+            long start = System.nanoTime();
+            if (!service.checkpoint()) {
+                System.out.println("Checkpoint " + c + " failed");
+            }
+            checkpointLatency.record(System.nanoTime() - start);
+            maxDeltas = Math.max(maxDeltas, countDeltas(dataDir));
+        }
+        long bytesWritten = Metrics.counter("accounts.store.bytesWritten").sum() - bytesBefore;
+
+        System.out.printf("Full snapshot: %d KiB, %s%n", fullBytes / 1024, fullLatency);
+        System.out.printf("Checkpoint with %d changed accounts: %d KiB written on average, %s%n",
+                changes, bytesWritten / checkpoints / 1024, checkpointLatency);
+        System.out.println("Delta saves: " + Metrics.latency("accounts.store.saveDelta")
+                + ", full saves: " + Metrics.latency("accounts.store.save").getCount());
+        System.out.println("Delta bytes: " + Metrics.histogram("accounts.store.delta.bytes"));
+
+        // Changes only in the write-ahead log, then a restart without close()
+        deposit(service, numbers, changes, random);
+        int deltasAtCrash = countDeltas(dataDir);
+        AccountService recovered = new AccountService(dataDir.getPath());
+        int mismatches = 0;
+        for (String number : numbers) {
+            Account expected = service.getAccountByNumber(number);
+            Account actual = recovered.getAccountByNumber(number);
+            if (actual == null || actual.getBalanceMinor() != expected.getBalanceMinor()) {
+                mismatches++;
+            }
+        }
+
+        boolean ok = Harness.check("balances after restart differ", 0, mismatches);
+        ok &= Harness.check("deltas written between full saves", 1, maxDeltas > 0 ? 1 : 0);
+        ok &= Harness.check("deltas bounded by compaction", 1,
+                maxDeltas <= Integer.getInteger("banking.snapshot.maxDeltas", 32) ? 1 : 0);
+        ok &= Harness.check("checkpoints write less than a full snapshot", 1,
+                bytesWritten / checkpoints < fullBytes ? 1 : 0);
+        System.out.println("Deltas on disk at the restart: " + deltasAtCrash);
+
+        System.out.println(ok ? "PASSED" : "FAILED");
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static void deposit(AccountService service, List<String> numbers, int count, Random random) {
+        for (int i = 0; i < count; i++) {
+            String number = numbers.get(random.nextInt(numbers.size()));
+            service.deposit(number, Money.ofMinor(100 + random.nextInt(10_000)), "Snapshot test");
+        }
+    }
+
+    private static int countDeltas(File dataDir) {
+        String[] deltas = dataDir.list((dir, name) -> name.startsWith("accounts.dat.delta.")
+                && !name.endsWith(".tmp"));
+        return deltas != null ? deltas.length : 0;
+    }
+}
@@ -0,0 +1,124 @@
+package tools;
+
+import models.Money;
+import services.AccountService;
+import services.LoginThrottle;
+import services.PinAuthenticator;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Credential-stuffing load test for the login throttle.
+ *
+ * Several threads fire wrong PINs at a set of target accounts, mixed with
+ * guesses at account numbers that do not exist, against a scratch data
+ * directory. Afterwards it checks that the targets are throttled, so even their
+ * correct PIN is turned away without key derivation; that an account outside
+ * the attack still logs in; that only the first few attempts per target
+ * reached key derivation; and that heap use did not grow with the number of
+ * attempts.
+ *
+ * The throttle runs on a simulated clock that spreads the attempts evenly over
+ * ten minutes, however fast the machine is. That is long enough for every
+ * target to work through its backoff steps and short of the 15-minute lockout,
+ * so the outcome does not depend on timing. Use at least a few hundred
+ * attempts per target.
+ *
+ * Usage: java tools.LoginStressTest [attempts] [threads] [targets]
+ */
+public class LoginStressTest {
+
+    private static final String PIN = "1234";
+    private static final long SIMULATED_MILLIS = 10 * 60_000L;
+
+    public static void main(String[] args) throws Exception {
+        // The attack, not the hashing cost, is what is measured
+        Harness.useCheapPinHashing();
+        long attempts = args.length > 0 ? Long.parseLong(args[0]) : 2_000_000L;
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors() * 4;
+        int targetCount = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+        File dataDir = Files.createTempDirectory("banking-logins").toFile();
+        System.out.println("Data directory: " + dataDir);
+
+        AtomicLong remaining = new AtomicLong(attempts);
+        long clockStart = System.currentTimeMillis();
+        LoginThrottle throttle = new LoginThrottle(() ->
+                clockStart + (attempts - Math.max(0, remaining.get())) * SIMULATED_MILLIS / attempts);
+        AccountService service = new AccountService(dataDir.getPath(), throttle);
+        List<String> numbers = Harness.openAccounts(service, "Login User", targetCount + 1, Money.ofMajor(1000), PIN);
+        String bystander = numbers.remove(numbers.size() - 1);
+        String[] targets = numbers.toArray(new String[0]);
+        PinAuthenticator authenticator = service.getPinAuthenticator();
+
+        long heapBefore = usedHeap();
+        AtomicLong accepted = new AtomicLong();
+        AtomicLong busy = new AtomicLong();
+        long start = System.nanoTime();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (remaining.getAndDecrement() > 0) {
+                    String account = random.nextBoolean()
+                            ? targets[random.nextInt(targets.length)]
+                            : "ACC" + random.nextLong(1L << 62);
+                    String guess = String.format("%04d", 5000 + random.nextInt(5000));
+                    try {
+                        if (service.authenticateUser(account, guess) != null) {
+                            accepted.incrementAndGet();
+                        }
+                    } catch (IllegalStateException e) {
+                        // Verification queue full; the guess was not checked
+                        busy.incrementAndGet();
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long heapAfter = usedHeap();
+
+        System.out.printf("%d attempts in %.1fs (%.0f/s) on %d threads%n", attempts, seconds, attempts / seconds, threads);
+        System.out.println("Throttled: " + throttle.getThrottled() + ", failures counted: " + throttle.getFailures()
+                + ", sketch: " + throttle.getMemoryBytes() / 1024 + " KiB");
+        System.out.println("PIN verification: " + authenticator.getVerifyLatency() + ", refused as busy: " + busy.get());
+        System.out.printf("Heap after GC: %.1f MiB before, %.1f MiB after%n", heapBefore / 1048576.0, heapAfter / 1048576.0);
+
+        boolean ok = Harness.check("wrong PINs accepted", 0, accepted.get());
+        int lockedOut = 0;
+        for (String target : targets) {
+            if (service.authenticateUser(target, PIN) == null) {
+                lockedOut++;
+            }
+        }
+        ok &= Harness.check("targets throttled, even with the right PIN", targets.length, lockedOut);
+        ok &= Harness.check("bystander still logs in", 1, service.authenticateUser(bystander, PIN) != null ? 1 : 0);
+        // Per target: the free attempts plus one per backoff step before the lockout,
+        // plus threads that passed the check while another's derivation was still running
+        ok &= Harness.check("key derivations bounded per target", 1,
+                authenticator.getVerifyLatency().getCount() <= targets.length * (12L + threads) + 2 ? 1 : 0);
+        ok &= Harness.check("heap did not grow with attempts", 1, heapAfter - heapBefore < 64L << 20 ? 1 : 0);
+
+        System.out.println(ok ? "PASSED" : "FAILED");
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,59 @@
+package tools;
+
+import services.AccountService;
+import services.OnboardingCsvReader;
+import services.OnboardingReport;
+import services.OnboardingRequest;
+import services.OnboardingResult;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+/**
+ * Opens the accounts listed in a CSV file (see {@link OnboardingCsvReader} for
+ * the columns) and writes a per-row report.
+ *
+ * Usage: java tools.OnboardAccounts [dataDirectory] requests.csv [report.csv]
+ */
+public class OnboardAccounts {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java tools.OnboardAccounts [dataDirectory] requests.csv [report.csv]");
+            System.exit(2);
+        }
+        String dataDirectory = args.length > 1 ? args[0] : "data";
+        Path input = Paths.get(args.length > 1 ? args[1] : args[0]);
+        Path reportFile = Paths.get(args.length > 2 ? args[2] : input + ".report.csv");
+
+        AccountService service = new AccountService(dataDirectory);
+        OnboardingReport report;
+        try (Stream<OnboardingRequest> requests = OnboardingCsvReader.read(input)) {
+            report = service.onboardAccounts(requests);
+        }
+
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8))) {
+            writer.println("row,status,accountNumber,field,code");
+            for (OnboardingResult result : report.getResults()) {
+                String status = result.isCreated() ? "CREATED"
+                        : result.isNotCommitted() ? "NOT_COMMITTED" : "REJECTED";
+                writer.println(result.getRow() + "," + status + ","
+                        + (result.isCreated() ? result.getAccountNumber() : "") + ","
+                        + (result.getField() != null ? result.getField() : "") + ","
+                        + (result.getCode() != null ? result.getCode() : ""));
+            }
+        }
+
+        System.out.println(report.getCreatedCount() + " accounts created, " + report.getRejectedCount()
+                + " rows rejected in " + report.getElapsedMillis() + " ms; report written to " + reportFile);
+        if (!report.isCommitted()) {
+            System.out.println("Some accounts could not be written to disk and were not created (NOT_COMMITTED rows)");
+            System.exit(1);
+        }
+    }
+}
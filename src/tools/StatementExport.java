@@ -0,0 +1,44 @@
+package tools;
+
+import models.Account;
+import services.AccountService;
+import services.StatementExportJob;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Month-end statement run: writes one CSV per account of a data directory.
+ *
+ * Usage: java tools.StatementExport [dataDirectory] [outputDirectory] [threads]
+ */
+public class StatementExport {
+
+    public static void main(String[] args) {
+        String dataDirectory = args.length > 0 ? args[0] : "data";
+        String outputDirectory = args.length > 1 ? args[1] : "statements";
+        int threads = args.length > 2 ? Integer.parseInt(args[2])
+                : Runtime.getRuntime().availableProcessors();
+
+        AccountService service = new AccountService(dataDirectory);
+        List<String> accountNumbers = new ArrayList<>();
+        for (Account account : service.getAllAccounts()) {
+            accountNumbers.add(account.getAccountNumber());
+        }
+
+        System.out.println("Exporting " + accountNumbers.size() + " statements to "
+                + outputDirectory + " on " + threads + " threads");
+        StatementExportJob.Result result = new StatementExportJob(service.getTransactionService(), outputDirectory)
+                .parallelism(threads)
+                .onProgress((completed, total) -> System.out.println("  " + completed + " / " + total))
+                .run(accountNumbers);
+
+        long elapsed = Math.max(1, result.getElapsedMillis());
+        System.out.println(result.getExported() + " statements, " + result.getRows() + " rows in "
+                + elapsed + " ms (" + (result.getRows() * 1000 / elapsed) + " rows/s)");
+        if (!result.isSuccessful()) {
+            System.out.println("Failed: " + result.getFailedAccounts());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package tools;
+
+import models.Account;
+import models.Money;
+import services.AccountService;
+import utils.Metrics;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency stress test for AccountService.
+ *
+ * Runs many random transfers from several threads against a scratch data
+ * directory, then checks that no money was created or destroyed, that every
+ * balance matches its own transaction history, and that a fresh service
+ * recovered from disk sees the same totals. In async mode the threads submit
+ * through AccountService.transferAsync instead and wait for the futures at the end.
+ *
+ * Usage: java tools.TransferStressTest [transfers] [threads] [accounts] [sync|async]
+ */
+public class TransferStressTest {
+    
+    private static final Money OPENING_BALANCE = Money.ofMajor(100000);
+    
+    public static void main(String[] args) throws Exception {
+        Harness.useCheapPinHashing();
+        long transfers = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000L;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) 
+                : Runtime.getRuntime().availableProcessors() * 4;
+        int accountCount = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        boolean async = args.length > 3 && args[3].equals("async");
+        
+        File dataDir = Files.createTempDirectory("banking-stress").toFile();
+        System.out.println("Data directory: " + dataDir);
+        
+        AccountService service = new AccountService(dataDir.getPath());
+        long expectedTotal = totalBalance(service, listAccounts(service, null));
+        List<String> accountNumbers = Harness.openAccounts(service, "Stress User", accountCount, OPENING_BALANCE, "1234");
+        expectedTotal += accountCount * OPENING_BALANCE.getMinorUnits();
+        
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong attempted = new AtomicLong();
+        Queue<CompletableFuture<Void>> pending = new ConcurrentLinkedQueue<>();
+        List<Thread> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        
+        for (int t = 0; t < threads; t++) {
+            long share = transfers / threads + (t < transfers % threads ? 1 : 0);
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (long i = 0; i < share; i++) {
+                    String from = accountNumbers.get(random.nextInt(accountNumbers.size()));
+                    String to = accountNumbers.get(random.nextInt(accountNumbers.size()));
+                    Money amount = Money.ofMinor(1 + random.nextInt(50_000));
+                    if (async) {
+                        pending.add(service.transferAsync(from, to, amount, "Stress transfer")
+                                .thenAccept(result -> {
+                                    if (result.isSuccessful()) {
+                                        succeeded.incrementAndGet();
+                                    }
+                                }));
+                    } else if (service.transfer(from, to, amount, "Stress transfer")) {
+                        succeeded.incrementAndGet();
+                    }
+                    attempted.incrementAndGet();
+                }
+            }, "stress-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+        
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d %s transfers attempted, %d applied in %.1fs (%.0f/s) on %d threads%n",
+                attempted.get(), async ? "async" : "sync", succeeded.get(), seconds, attempted.get() / seconds, threads);
+        System.out.println("Transfer latency: " + Metrics.latency(async ? "account.transferAsync" : "account.transfer"));
+        
+        boolean ok = true;
+        long actualTotal = totalBalance(service, accountNumbers) 
+                + totalBalance(service, listAccounts(service, accountNumbers));
+        ok &= Harness.check("money conserved", expectedTotal, actualTotal);
+        ok &= Harness.checkHistories(service, accountNumbers);
+        
+        service.checkpoint();
+        AccountService recovered = new AccountService(dataDir.getPath());
+        long recoveredTotal = totalBalance(recovered, accountNumbers) 
+                + totalBalance(recovered, listAccounts(recovered, accountNumbers));
+        ok &= Harness.check("money conserved after reload", expectedTotal, recoveredTotal);
+        
+        System.out.println(ok ? "PASSED" : "FAILED");
+        System.exit(ok ? 0 : 1);
+    }
+    
+    // Accounts that exist in the service but were not opened by this run (e.g. the seeded test account)
+    private static List<String> listAccounts(AccountService service, List<String> exclude) {
+        List<String> others = new ArrayList<>();
+        for (Account account : service.getAllAccounts()) {
+            if (exclude == null || !exclude.contains(account.getAccountNumber())) {
+                others.add(account.getAccountNumber());
+            }
+        }
+        return others;
+    }
+    
+    private static long totalBalance(AccountService service, List<String> accountNumbers) {
+        long total = 0;
+        for (String number : accountNumbers) {
+            total += service.getAccountByNumber(number).getBalanceMinor();
+        }
+        return total;
+    }
+}
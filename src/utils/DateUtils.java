@@ -1,18 +1,79 @@
 package utils;
 
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
 import java.util.Date;
-import java.util.Calendar;
+import java.util.Map;
 
+/**
+ * Date helpers built on java.time. Formatters are immutable and cached, so
+ * every method is safe to call from any thread. Dates are interpreted in the
+ * system time zone as it was when this class was loaded.
+ */
 public class DateUtils {
-    
+
     // Common date formats
     public static final String DATE_FORMAT = "dd/MM/yyyy";
     public static final String DATETIME_FORMAT = "dd/MM/yyyy HH:mm:ss";
     public static final String TIME_FORMAT = "HH:mm:ss";
     public static final String DISPLAY_DATE_FORMAT = "dd MMM yyyy";
     public static final String DISPLAY_DATETIME_FORMAT = "dd MMM yyyy, HH:mm:ss";
-    
+
+    /** Length of a date formatted with {@link #DATETIME_FORMAT}. */
+    public static final int DATETIME_LENGTH = 19;
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final ZoneRules ZONE_RULES = ZONE.getRules();
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(DATE_FORMAT);
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern(TIME_FORMAT);
+    private static final DateTimeFormatter DISPLAY_DATE_FORMATTER = DateTimeFormatter.ofPattern(DISPLAY_DATE_FORMAT);
+    private static final DateTimeFormatter DISPLAY_DATETIME_FORMATTER = DateTimeFormatter.ofPattern(DISPLAY_DATETIME_FORMAT);
+    // Only the patterns above, which mean the same to DateTimeFormatter as to SimpleDateFormat
+    private static final Map<String, DateTimeFormatter> FORMATTERS = Map.of(
+            DATE_FORMAT, DATE_FORMATTER,
+            DATETIME_FORMAT, DateTimeFormatter.ofPattern(DATETIME_FORMAT),
+            TIME_FORMAT, TIME_FORMATTER,
+            DISPLAY_DATE_FORMAT, DISPLAY_DATE_FORMATTER,
+            DISPLAY_DATETIME_FORMAT, DISPLAY_DATETIME_FORMATTER);
+
+    /**
+     * One local day (or the part of it between two zone offset transitions):
+     * its UTC offset and its date already rendered as "dd/MM/yyyy".
+     * Immutable, so it can be shared between threads without locking.
+     */
+    private static final class DayWindow {
+        final long start;
+        final long end;
+        final long offsetMillis;
+        final long epochDay;
+        final char[] date;
+
+        DayWindow(long start, long end, long offsetMillis, long epochDay, char[] date) {
+            this.start = start;
+            this.end = end;
+            this.offsetMillis = offsetMillis;
+            this.epochDay = epochDay;
+            this.date = date;
+        }
+    }
+
+    // Day windows by local day number, so threads working on different dates
+    // do not evict each other. Entries are immutable; a racy overwrite only
+    // costs a recomputation.
+    private static final int DAY_CACHE_SIZE = 4096;
+    private static final long BASE_OFFSET_MILLIS =
+            ZONE_RULES.getOffset(Instant.now()).getTotalSeconds() * 1000L;
+    private static final DayWindow[] DAY_CACHE = new DayWindow[DAY_CACHE_SIZE];
+
     /**
      * Formats date to string using default format (dd/MM/yyyy)
      */
@@ -20,21 +81,25 @@ public class DateUtils {
         if (date == null) {
             return "";
         }
-        SimpleDateFormat formatter = new SimpleDateFormat(DATE_FORMAT);
-        return formatter.format(date);
+        return new String(dayOf(date.getTime()).date);
     }
-    
+
     /**
-     * Formats date to string using specified format
+     * Formats date to string using specified format. The pattern has
+     * SimpleDateFormat syntax; the patterns defined in this class are served
+     * from cached formatters, any other is compiled for the call.
      */
     public static String formatDate(Date date, String format) {
         if (date == null) {
             return "";
         }
-        SimpleDateFormat formatter = new SimpleDateFormat(format);
-        return formatter.format(date);
+        DateTimeFormatter formatter = FORMATTERS.get(format);
+        if (formatter == null) {
+            return new SimpleDateFormat(format).format(date);
+        }
+        return formatter.format(toLocalDateTime(date));
     }
-    
+
     /**
      * Formats date and time to string using default format
      */
@@ -42,10 +107,48 @@ public class DateUtils {
         if (date == null) {
             return "";
         }
-        SimpleDateFormat formatter = new SimpleDateFormat(DATETIME_FORMAT);
-        return formatter.format(date);
+        char[] chars = new char[DATETIME_LENGTH];
+        formatDateTime(date.getTime(), chars, 0);
+        return new String(chars);
     }
-    
+
+    /**
+     * Appends an epoch millisecond timestamp as dd/MM/yyyy HH:mm:ss.
+     * Allocates nothing once the builder has room.
+     */
+    public static StringBuilder appendDateTime(StringBuilder sb, long epochMillis) {
+        DayWindow day = dayOf(epochMillis);
+        sb.append(day.date);
+        int secondOfDay = secondOfDay(day, epochMillis);
+        sb.append(' ');
+        appendTwoDigits(sb, secondOfDay / 3600).append(':');
+        appendTwoDigits(sb, secondOfDay / 60 % 60).append(':');
+        return appendTwoDigits(sb, secondOfDay % 60);
+    }
+
+    /**
+     * Writes an epoch millisecond timestamp as dd/MM/yyyy HH:mm:ss into
+     * {@code dest} starting at {@code offset}. Returns the number of chars
+     * written ({@link #DATETIME_LENGTH} for four-digit years).
+     */
+    public static int formatDateTime(long epochMillis, char[] dest, int offset) {
+        DayWindow day = dayOf(epochMillis);
+        int length = day.date.length + 9;
+        if (offset < 0 || offset + length > dest.length) {
+            throw new IndexOutOfBoundsException("No room for " + length + " chars at " + offset);
+        }
+        System.arraycopy(day.date, 0, dest, offset, day.date.length);
+        int i = offset + day.date.length;
+        int secondOfDay = secondOfDay(day, epochMillis);
+        dest[i++] = ' ';
+        i = putTwoDigits(dest, i, secondOfDay / 3600);
+        dest[i++] = ':';
+        i = putTwoDigits(dest, i, secondOfDay / 60 % 60);
+        dest[i++] = ':';
+        putTwoDigits(dest, i, secondOfDay % 60);
+        return length;
+    }
+
     /**
      * Formats date and time for display (more readable format)
      */
@@ -53,10 +156,9 @@ public class DateUtils {
         if (date == null) {
             return "";
         }
-        SimpleDateFormat formatter = new SimpleDateFormat(DISPLAY_DATETIME_FORMAT);
-        return formatter.format(date);
+        return DISPLAY_DATETIME_FORMATTER.format(toLocalDateTime(date));
     }
-    
+
     /**
      * Formats date for display (more readable format)
      */
@@ -64,10 +166,9 @@ public class DateUtils {
         if (date == null) {
             return "";
         }
-        SimpleDateFormat formatter = new SimpleDateFormat(DISPLAY_DATE_FORMAT);
-        return formatter.format(date);
+        return DISPLAY_DATE_FORMATTER.format(toLocalDateTime(date));
     }
-    
+
     /**
      * Formats time only
      */
@@ -75,31 +176,44 @@ public class DateUtils {
         if (date == null) {
             return "";
         }
-        SimpleDateFormat formatter = new SimpleDateFormat(TIME_FORMAT);
-        return formatter.format(date);
+        return TIME_FORMATTER.format(toLocalDateTime(date));
     }
-    
+
     /**
      * Gets current date
      */
     public static Date getCurrentDate() {
         return new Date();
     }
-    
+
     /**
      * Gets current date as formatted string
      */
     public static String getCurrentDateString() {
         return formatDate(new Date());
     }
-    
+
     /**
      * Gets current date and time as formatted string
      */
     public static String getCurrentDateTimeString() {
         return formatDateTime(new Date());
     }
-    
+
+    /**
+     * Local calendar day of an epoch millisecond timestamp, counted in days since 1970-01-01.
+     */
+    public static long toEpochDay(long epochMillis) {
+        return dayOf(epochMillis).epochDay;
+    }
+
+    /**
+     * Epoch millisecond timestamp at which the given local day starts.
+     */
+    public static long startOfEpochDay(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay).atStartOfDay(ZONE).toInstant().toEpochMilli();
+    }
+
     /**
      * Adds days to a given date
      */
@@ -107,12 +221,9 @@ public class DateUtils {
         if (date == null) {
             return null;
         }
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(date);
-        cal.add(Calendar.DAY_OF_MONTH, days);
-        return cal.getTime();
+        return toDate(toLocalDateTime(date).plusDays(days));
     }
-    
+
     /**
      * Adds months to a given date
      */
@@ -120,12 +231,9 @@ public class DateUtils {
         if (date == null) {
             return null;
         }
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(date);
-        cal.add(Calendar.MONTH, months);
-        return cal.getTime();
+        return toDate(toLocalDateTime(date).plusMonths(months));
     }
-    
+
     /**
      * Adds years to a given date
      */
@@ -133,12 +241,9 @@ public class DateUtils {
         if (date == null) {
             return null;
         }
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(date);
-        cal.add(Calendar.YEAR, years);
-        return cal.getTime();
+        return toDate(toLocalDateTime(date).plusYears(years));
     }
-    
+
     /**
      * Checks if two dates are on the same day
      */
@@ -146,16 +251,9 @@ public class DateUtils {
         if (date1 == null || date2 == null) {
             return false;
         }
-        
-        Calendar cal1 = Calendar.getInstance();
-        Calendar cal2 = Calendar.getInstance();
-        cal1.setTime(date1);
-        cal2.setTime(date2);
-        
-        return cal1.get(Calendar.YEAR) == cal2.get(Calendar.YEAR) &&
-               cal1.get(Calendar.DAY_OF_YEAR) == cal2.get(Calendar.DAY_OF_YEAR);
+        return toEpochDay(date1.getTime()) == toEpochDay(date2.getTime());
     }
-    
+
     /**
      * Gets the difference in days between two dates
      */
@@ -163,11 +261,11 @@ public class DateUtils {
         if (startDate == null || endDate == null) {
             return 0;
         }
-        
+
         long diffInMillies = Math.abs(endDate.getTime() - startDate.getTime());
-        return diffInMillies / (24 * 60 * 60 * 1000);
+        return diffInMillies / MILLIS_PER_DAY;
     }
-    
+
     /**
      * Gets start of day for a given date (00:00:00)
      */
@@ -175,16 +273,9 @@ public class DateUtils {
         if (date == null) {
             return null;
         }
-        
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(date);
-        cal.set(Calendar.HOUR_OF_DAY, 0);
-        cal.set(Calendar.MINUTE, 0);
-        cal.set(Calendar.SECOND, 0);
-        cal.set(Calendar.MILLISECOND, 0);
-        return cal.getTime();
+        return new Date(startOfEpochDay(toEpochDay(date.getTime())));
     }
-    
+
     /**
      * Gets end of day for a given date (23:59:59)
      */
@@ -192,23 +283,16 @@ public class DateUtils {
         if (date == null) {
             return null;
         }
-        
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(date);
-        cal.set(Calendar.HOUR_OF_DAY, 23);
-        cal.set(Calendar.MINUTE, 59);
-        cal.set(Calendar.SECOND, 59);
-        cal.set(Calendar.MILLISECOND, 999);
-        return cal.getTime();
+        return new Date(startOfEpochDay(toEpochDay(date.getTime()) + 1) - 1);
     }
-    
+
     /**
      * Checks if a date is today
      */
     public static boolean isToday(Date date) {
         return isSameDay(date, new Date());
     }
-    
+
     /**
      * Gets a user-friendly time difference string
      */
@@ -216,13 +300,13 @@ public class DateUtils {
         if (date == null) {
             return "";
         }
-        
+
         long diff = System.currentTimeMillis() - date.getTime();
         long seconds = diff / 1000;
         long minutes = seconds / 60;
         long hours = minutes / 60;
         long days = hours / 24;
-        
+
         if (seconds < 60) {
             return "Just now";
         } else if (minutes < 60) {
@@ -235,4 +319,68 @@ public class DateUtils {
             return formatDateForDisplay(date);
         }
     }
-}
\ No newline at end of file
+
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(date.getTime()), ZONE);
+    }
+
+    private static Date toDate(LocalDateTime dateTime) {
+        return Date.from(dateTime.atZone(ZONE).toInstant());
+    }
+
+    private static DayWindow dayOf(long epochMillis) {
+        int slot = Math.floorMod(Math.floorDiv(epochMillis + BASE_OFFSET_MILLIS, MILLIS_PER_DAY), DAY_CACHE_SIZE);
+        DayWindow day = DAY_CACHE[slot];
+        if (day == null || epochMillis < day.start || epochMillis >= day.end) {
+            day = dayWindow(epochMillis);
+            DAY_CACHE[slot] = day;
+        }
+        return day;
+    }
+
+    private static DayWindow dayWindow(long epochMillis) {
+        Instant instant = Instant.ofEpochMilli(epochMillis);
+        ZoneOffset offset = ZONE_RULES.getOffset(instant);
+        long offsetMillis = offset.getTotalSeconds() * 1000L;
+        long epochDay = Math.floorDiv(epochMillis + offsetMillis, MILLIS_PER_DAY);
+        long start = epochDay * MILLIS_PER_DAY - offsetMillis;
+        long end = start + MILLIS_PER_DAY;
+
+        // The offset only holds between the surrounding zone transitions
+        ZoneOffsetTransition previous = ZONE_RULES.previousTransition(instant.plusMillis(1));
+        if (previous != null) {
+            start = Math.max(start, previous.getInstant().toEpochMilli());
+        }
+        ZoneOffsetTransition next = ZONE_RULES.nextTransition(instant);
+        if (next != null) {
+            end = Math.min(end, next.getInstant().toEpochMilli());
+        }
+
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        StringBuilder text = new StringBuilder(10);
+        appendTwoDigits(text, date.getDayOfMonth()).append('/');
+        appendTwoDigits(text, date.getMonthValue()).append('/');
+        int year = date.getYear();
+        if (year >= 0 && year < 1000) {
+            text.append(year < 10 ? "000" : year < 100 ? "00" : "0");
+        }
+        text.append(year);
+        char[] chars = new char[text.length()];
+        text.getChars(0, chars.length, chars, 0);
+        return new DayWindow(start, end, offsetMillis, epochDay, chars);
+    }
+
+    private static int secondOfDay(DayWindow day, long epochMillis) {
+        return (int) (Math.floorMod(epochMillis + day.offsetMillis, MILLIS_PER_DAY) / 1000);
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder sb, int value) {
+        return sb.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    private static int putTwoDigits(char[] dest, int index, int value) {
+        dest[index] = (char) ('0' + value / 10);
+        dest[index + 1] = (char) ('0' + value % 10);
+        return index + 2;
+    }
+}
@@ -0,0 +1,23 @@
+package utils;
+
+/**
+ * Source of unique, time-ordered numeric ids.
+ * Implementations must be safe to call from many threads at once.
+ */
+public interface IdGenerator {
+
+    /**
+     * Returns a new id, greater than every id previously returned by this generator.
+     */
+    long nextId();
+
+    /**
+     * Fills {@code ids} with new ids, in increasing order. Implementations may
+     * reserve the whole block at once instead of one id at a time.
+     */
+    default void nextIds(long[] ids) {
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = nextId();
+        }
+    }
+}
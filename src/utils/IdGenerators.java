@@ -0,0 +1,36 @@
+package utils;
+
+/**
+ * Process-wide id generators for accounts and transactions.
+ *
+ * Both default to a {@link SnowflakeIdGenerator} whose node id comes from the
+ * {@code banking.nodeId} system property (0 if unset). Run each process that
+ * shares a data store with a different node id, or install another generator
+ * with the setters before any ids are handed out.
+ */
+public class IdGenerators {
+
+    private static final int NODE_ID = Integer.getInteger("banking.nodeId", 0);
+
+    private static volatile IdGenerator accountIds = new SnowflakeIdGenerator(NODE_ID);
+    private static volatile IdGenerator transactionIds = new SnowflakeIdGenerator(NODE_ID);
+
+    private IdGenerators() {
+    }
+
+    public static IdGenerator accounts() {
+        return accountIds;
+    }
+
+    public static IdGenerator transactions() {
+        return transactionIds;
+    }
+
+    public static void setAccountIdGenerator(IdGenerator generator) {
+        accountIds = generator;
+    }
+
+    public static void setTransactionIdGenerator(IdGenerator generator) {
+        transactionIds = generator;
+    }
+}
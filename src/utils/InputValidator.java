@@ -0,0 +1,185 @@
+package utils;
+
+/**
+ * Hand-written scanners for customer input. Each check makes a single pass
+ * over the characters, ignores leading and trailing whitespace the way
+ * {@link String#trim()} does (without creating the trimmed string), and
+ * returns a {@link ValidationCode} instead of a boolean. Accepting any
+ * CharSequence lets bulk callers validate slices of a larger buffer.
+ *
+ * The accepted formats are the ones ValidationUtils has always used:
+ * name {@code [a-zA-Z\s]{2,50}}, phone {@code [6-9]\d{9}}, PIN {@code \d{4}},
+ * account number {@code ACC\d+}, email
+ * {@code [A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\.[A-Za-z]{2,}} and address of 10-200
+ * characters.
+ */
+public final class InputValidator {
+
+    private static final int NAME_MIN_LENGTH = 2;
+    private static final int NAME_MAX_LENGTH = 50;
+    private static final int PHONE_LENGTH = 10;
+    private static final int PIN_LENGTH = 4;
+    private static final String ACCOUNT_PREFIX = "ACC";
+    private static final int ADDRESS_MIN_LENGTH = 10;
+    private static final int ADDRESS_MAX_LENGTH = 200;
+
+    private InputValidator() {
+    }
+
+    public static ValidationCode checkName(CharSequence name) {
+        if (name == null) return ValidationCode.EMPTY;
+        int start = trimStart(name);
+        int end = trimEnd(name, start);
+        int length = end - start;
+        if (length == 0) return ValidationCode.EMPTY;
+        if (length < NAME_MIN_LENGTH) return ValidationCode.TOO_SHORT;
+        if (length > NAME_MAX_LENGTH) return ValidationCode.TOO_LONG;
+
+        for (int i = start; i < end; i++) {
+            char c = name.charAt(i);
+            if (!isAsciiLetter(c) && !isWhitespace(c)) {
+                return ValidationCode.INVALID_CHARACTER;
+            }
+        }
+        return ValidationCode.VALID;
+    }
+
+    /**
+     * Indian 10-digit mobile number starting with 6-9.
+     */
+    public static ValidationCode checkPhone(CharSequence phone) {
+        if (phone == null) return ValidationCode.EMPTY;
+        int start = trimStart(phone);
+        int end = trimEnd(phone, start);
+        if (end == start) return ValidationCode.EMPTY;
+        if (end - start != PHONE_LENGTH) return ValidationCode.WRONG_LENGTH;
+
+        char first = phone.charAt(start);
+        if (first < '6' || first > '9') return ValidationCode.INVALID_PREFIX;
+        return digitsOnly(phone, start + 1, end);
+    }
+
+    public static ValidationCode checkPin(CharSequence pin) {
+        if (pin == null) return ValidationCode.EMPTY;
+        int start = trimStart(pin);
+        int end = trimEnd(pin, start);
+        if (end == start) return ValidationCode.EMPTY;
+        if (end - start != PIN_LENGTH) return ValidationCode.WRONG_LENGTH;
+        return digitsOnly(pin, start, end);
+    }
+
+    public static ValidationCode checkAccountNumber(CharSequence accountNumber) {
+        if (accountNumber == null) return ValidationCode.EMPTY;
+        int start = trimStart(accountNumber);
+        int end = trimEnd(accountNumber, start);
+        if (end == start) return ValidationCode.EMPTY;
+
+        int prefixLength = ACCOUNT_PREFIX.length();
+        if (end - start < prefixLength) return ValidationCode.INVALID_PREFIX;
+        for (int i = 0; i < prefixLength; i++) {
+            if (accountNumber.charAt(start + i) != ACCOUNT_PREFIX.charAt(i)) {
+                return ValidationCode.INVALID_PREFIX;
+            }
+        }
+        if (end - start == prefixLength) return ValidationCode.TOO_SHORT;
+        return digitsOnly(accountNumber, start + prefixLength, end);
+    }
+
+    public static ValidationCode checkEmail(CharSequence email) {
+        if (email == null) return ValidationCode.EMPTY;
+        int start = trimStart(email);
+        int end = trimEnd(email, start);
+        if (end == start) return ValidationCode.EMPTY;
+
+        // Local part: one or more of [A-Za-z0-9+_.-] up to the @
+        int i = start;
+        while (i < end) {
+            char c = email.charAt(i);
+            if (c == '@') break;
+            if (!isAsciiLetterOrDigit(c) && c != '+' && c != '_' && c != '.' && c != '-') {
+                return ValidationCode.INVALID_CHARACTER;
+            }
+            i++;
+        }
+        if (i == end) return ValidationCode.MISSING_AT_SIGN;
+        if (i == start) return ValidationCode.INVALID_FORMAT;
+
+        // Domain: [A-Za-z0-9.-]+ ending in a dot and at least two letters
+        int domainStart = i + 1;
+        int lastDot = -1;
+        boolean lettersAfterDot = true;
+        for (i = domainStart; i < end; i++) {
+            char c = email.charAt(i);
+            if (c == '.') {
+                lastDot = i;
+                lettersAfterDot = true;
+            } else if (isAsciiLetter(c)) {
+                // still a possible top-level domain
+            } else if (isAsciiDigit(c) || c == '-') {
+                lettersAfterDot = false;
+            } else {
+                return ValidationCode.INVALID_DOMAIN;
+            }
+        }
+        if (lastDot <= domainStart || end - lastDot - 1 < 2 || !lettersAfterDot) {
+            return ValidationCode.INVALID_DOMAIN;
+        }
+        return ValidationCode.VALID;
+    }
+
+    public static ValidationCode checkAddress(CharSequence address) {
+        if (address == null) return ValidationCode.EMPTY;
+        int start = trimStart(address);
+        int length = trimEnd(address, start) - start;
+        if (length == 0) return ValidationCode.EMPTY;
+        if (length < ADDRESS_MIN_LENGTH) return ValidationCode.TOO_SHORT;
+        if (length > ADDRESS_MAX_LENGTH) return ValidationCode.TOO_LONG;
+        return ValidationCode.VALID;
+    }
+
+    /**
+     * True for the characters matched by the regex class {@code \s}.
+     */
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    // Same rule as String.trim: everything up to U+0020 counts as blank
+    static int trimStart(CharSequence value) {
+        int start = 0;
+        int length = value.length();
+        while (start < length && value.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    static int trimEnd(CharSequence value, int start) {
+        int end = value.length();
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static ValidationCode digitsOnly(CharSequence value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!isAsciiDigit(value.charAt(i))) {
+                return ValidationCode.INVALID_CHARACTER;
+            }
+        }
+        return ValidationCode.VALID;
+    }
+
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isAsciiLetterOrDigit(char c) {
+        return isAsciiLetter(c) || isAsciiDigit(c);
+    }
+}
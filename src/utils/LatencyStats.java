@@ -0,0 +1,31 @@
+package utils;
+
+/**
+ * Latency histogram in nanoseconds, read back in milliseconds. See
+ * {@link Histogram} for the bucketing; percentiles are within about 3%,
+ * which is enough to tell a cache hit from a key derivation.
+ */
+public class LatencyStats extends Histogram {
+
+    public double getMeanMillis() {
+        return getMean() / 1e6;
+    }
+
+    public double getMaxMillis() {
+        return getMax() / 1e6;
+    }
+
+    /**
+     * The given percentile (0-100), in milliseconds.
+     */
+    public double getPercentileMillis(double percentile) {
+        return getValueAtPercentile(percentile) / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.2fms p50=%.2fms p99=%.2fms p999=%.2fms max=%.2fms",
+                getCount(), getMeanMillis(), getPercentileMillis(50), getPercentileMillis(99),
+                getPercentileMillis(99.9), getMaxMillis());
+    }
+}
@@ -0,0 +1,396 @@
+package utils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+
+/**
+ * Asynchronous leveled logging.
+ *
+ * A call below the current level returns after one volatile read, before any
+ * message is built. Enabled calls claim a slot in a fixed ring with a CAS and
+ * store the template and its arguments as they are; a single daemon thread
+ * formats them, writes them to a rolling file and echoes them to the
+ * console. Callers never wait on I/O or on each other. When the ring is full
+ * the message is dropped and counted rather than blocking the caller.
+ *
+ * Templates use {@code {}} placeholders. Because formatting happens later on
+ * the writer thread, pass immutable values (strings, numbers, Money) rather
+ * than objects that may change in the meantime. A trailing Throwable that
+ * fills no placeholder is written with its stack trace.
+ *
+ * Before a line is written, anything that looks like a PIN or password
+ * ({@code PIN: 1234}, {@code pin=...}) and any stored PIN hash is masked.
+ *
+ * Settings (system properties): {@code banking.log.level} (INFO),
+ * {@code banking.log.consoleLevel} (INFO), {@code banking.log.dir}
+ * (data/logs), {@code banking.log.maxBytes} per file (10 MiB),
+ * {@code banking.log.files} kept (5) and {@code banking.log.bufferSize}
+ * (8192 messages).
+ */
+public final class Log {
+
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR, OFF
+    }
+
+    private static final int CAPACITY = Integer.highestOneBit(
+            Math.max(2, Integer.getInteger("banking.log.bufferSize", 8192)));
+    private static final int MASK = CAPACITY - 1;
+    private static final String DIRECTORY = System.getProperty("banking.log.dir", "data/logs");
+    private static final String FILENAME = "banking.log";
+    private static final long MAX_BYTES = Long.getLong("banking.log.maxBytes", 10L << 20);
+    private static final int MAX_FILES = Math.max(1, Integer.getInteger("banking.log.files", 5));
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final Pattern SECRETS = Pattern.compile(
+            "(?i)\\b(pin|pinhash|password|passcode)(\\s*[:=]\\s*)[^\\s,;}\\]]+");
+    private static final Pattern PIN_HASHES = Pattern.compile("pbkdf2-sha256\\$[^\\s,;}\\]]+");
+    private static final DateTimeFormatter TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private static volatile int fileThreshold = parseLevel("banking.log.level").ordinal();
+    private static volatile int consoleThreshold = parseLevel("banking.log.consoleLevel").ordinal();
+
+    // Vyukov-style bounded ring: a slot is free for position p when its
+    // sequence is p and holds a published event when it is p + 1
+    private static final Event[] RING = new Event[CAPACITY];
+    private static final AtomicLongArray SEQUENCES = new AtomicLongArray(CAPACITY);
+    private static final AtomicLong TAIL = new AtomicLong();
+    private static final LongAdder DROPPED = new LongAdder();
+    private static volatile long written;
+    private static final Thread WRITER;
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            RING[i] = new Event();
+            SEQUENCES.set(i, i);
+        }
+        WRITER = new Thread(new LogWriter(), "log-writer");
+        WRITER.setDaemon(true);
+        WRITER.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::flush, "log-flush"));
+    }
+
+    private static final class Event {
+        long timestamp;
+        int level;
+        String logger;
+        String thread;
+        String template;
+        Object arg1;
+        Object arg2;
+        Object[] args;
+        int argCount;
+    }
+
+    private final String name;
+
+    private Log(String name) {
+        this.name = name;
+    }
+
+    /**
+     * A logger that tags its lines with the class's simple name.
+     */
+    public static Log get(Class<?> type) {
+        return new Log(type.getSimpleName());
+    }
+
+    public static void setLevel(Level level) {
+        fileThreshold = level.ordinal();
+    }
+
+    public static void setConsoleLevel(Level level) {
+        consoleThreshold = level.ordinal();
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.ordinal() >= Math.min(fileThreshold, consoleThreshold);
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    public void debug(String message) {
+        log(Level.DEBUG, message, 0, null, null, null);
+    }
+
+    public void debug(String template, Object arg) {
+        log(Level.DEBUG, template, 1, arg, null, null);
+    }
+
+    public void debug(String template, Object arg1, Object arg2) {
+        log(Level.DEBUG, template, 2, arg1, arg2, null);
+    }
+
+    public void info(String message) {
+        log(Level.INFO, message, 0, null, null, null);
+    }
+
+    public void info(String template, Object arg) {
+        log(Level.INFO, template, 1, arg, null, null);
+    }
+
+    public void info(String template, Object arg1, Object arg2) {
+        log(Level.INFO, template, 2, arg1, arg2, null);
+    }
+
+    public void info(String template, Object... args) {
+        log(Level.INFO, template, args.length, null, null, args);
+    }
+
+    public void warn(String message) {
+        log(Level.WARN, message, 0, null, null, null);
+    }
+
+    public void warn(String template, Object arg) {
+        log(Level.WARN, template, 1, arg, null, null);
+    }
+
+    public void warn(String template, Object arg1, Object arg2) {
+        log(Level.WARN, template, 2, arg1, arg2, null);
+    }
+
+    public void error(String message) {
+        log(Level.ERROR, message, 0, null, null, null);
+    }
+
+    public void error(String template, Object arg) {
+        log(Level.ERROR, template, 1, arg, null, null);
+    }
+
+    public void error(String template, Object arg1, Object arg2) {
+        log(Level.ERROR, template, 2, arg1, arg2, null);
+    }
+
+    /**
+     * Waits, for at most two seconds, until every message logged before the
+     * call has been written out.
+     */
+    public static void flush() {
+        long target = TAIL.get();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (written < target && System.nanoTime() < deadline) {
+            LockSupport.unpark(WRITER);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    /**
+     * Messages discarded because the ring was full.
+     */
+    public static long getDropped() {
+        return DROPPED.sum();
+    }
+
+    /**
+     * Masks PINs, passwords and PIN hashes in {@code text}.
+     */
+    public static String redact(String text) {
+        String masked = SECRETS.matcher(text).replaceAll("$1$2***");
+        return PIN_HASHES.matcher(masked).replaceAll("pbkdf2-sha256\\$***");
+    }
+
+    private void log(Level level, String template, int argCount, Object arg1, Object arg2, Object[] args) {
+        int ordinal = level.ordinal();
+        if (ordinal < fileThreshold && ordinal < consoleThreshold) {
+            return;
+        }
+        long position = TAIL.get();
+        int index;
+        while (true) {
+            index = (int) position & MASK;
+            long difference = SEQUENCES.get(index) - position;
+            if (difference == 0) {
+                if (TAIL.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = TAIL.get();
+            } else if (difference < 0) {
+                DROPPED.increment();
+                return;
+            } else {
+                position = TAIL.get();
+            }
+        }
+        Event event = RING[index];
+        event.timestamp = System.currentTimeMillis();
+        event.level = ordinal;
+        event.logger = name;
+        event.thread = Thread.currentThread().getName();
+        event.template = template;
+        event.arg1 = arg1;
+        event.arg2 = arg2;
+        event.args = args;
+        event.argCount = argCount;
+        SEQUENCES.set(index, position + 1);
+    }
+
+    private static Level parseLevel(String property) {
+        String value = System.getProperty(property, "INFO");
+        try {
+            return Level.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return Level.INFO;
+        }
+    }
+
+    private static String format(Event event) {
+        Object[] args = event.args != null ? event.args
+                : event.argCount == 2 ? new Object[] {event.arg1, event.arg2}
+                : event.argCount == 1 ? new Object[] {event.arg1}
+                : new Object[0];
+        String template = String.valueOf(event.template);
+        StringBuilder line = new StringBuilder(template.length() + 64);
+        line.append(TIMESTAMP.format(Instant.ofEpochMilli(event.timestamp))).append(' ');
+        String level = Level.values()[event.level].name();
+        line.append(level).append(" ".repeat(6 - level.length()));
+        line.append('[').append(event.thread).append("] ").append(event.logger).append(" - ");
+
+        int used = 0;
+        int from = 0;
+        int at;
+        while (used < args.length && (at = template.indexOf("{}", from)) >= 0) {
+            line.append(template, from, at).append(args[used++]);
+            from = at + 2;
+        }
+        line.append(template, from, template.length());
+        if (used < args.length && args[args.length - 1] instanceof Throwable) {
+            StringWriter trace = new StringWriter();
+            ((Throwable) args[args.length - 1]).printStackTrace(new PrintWriter(trace));
+            line.append(System.lineSeparator()).append(trace.toString().stripTrailing());
+        }
+        return redact(line.toString());
+    }
+
+    private static final class LogWriter implements Runnable {
+
+        private Writer file;
+        private long fileBytes;
+        private boolean fileFailed;
+        private long head;
+        private long droppedReported;
+
+        @Override
+        public void run() {
+            while (true) {
+                boolean idle = true;
+                int index = (int) head & MASK;
+                while (SEQUENCES.get(index) == head + 1) {
+                    Event event = RING[index];
+                    int level = event.level;
+                    String line;
+                    try {
+                        line = format(event);
+                    } catch (RuntimeException e) {
+                        // An argument's toString() threw; the writer thread must not die of it
+                        line = TIMESTAMP.format(Instant.ofEpochMilli(event.timestamp)) + " ERROR ["
+                                + event.thread + "] " + event.logger + " - Could not format \""
+                                + event.template + "\": " + e.getClass().getName();
+                    }
+                    event.template = null;
+                    event.arg1 = null;
+                    event.arg2 = null;
+                    event.args = null;
+                    SEQUENCES.set(index, head + CAPACITY);
+                    head++;
+                    try {
+                        write(level, line);
+                    } catch (RuntimeException e) {
+                        System.err.println("Could not write log line: " + e);
+                    }
+                    idle = false;
+                    index = (int) head & MASK;
+                }
+                reportDrops();
+                if (idle) {
+                    flushFile();
+                    written = head;
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+        }
+
+        private void reportDrops() {
+            long dropped = DROPPED.sum();
+            if (dropped > droppedReported) {
+                write(Level.WARN.ordinal(), TIMESTAMP.format(Instant.now()) + " WARN  [log-writer] Log - "
+                        + (dropped - droppedReported) + " messages dropped, log buffer was full");
+                droppedReported = dropped;
+            }
+        }
+
+        private void write(int level, String line) {
+            if (level >= consoleThreshold) {
+                (level >= Level.WARN.ordinal() ? System.err : System.out).println(line);
+            }
+            if (level >= fileThreshold && !fileFailed) {
+                try {
+                    if (file == null || fileBytes >= MAX_BYTES) {
+                        open(file != null);
+                    }
+                    file.write(line);
+                    file.write(System.lineSeparator());
+                    fileBytes += line.length() + 1;
+                } catch (IOException e) {
+                    fileFailed = true;
+                    System.err.println("Logging to " + DIRECTORY + " disabled: " + e.getMessage());
+                }
+            }
+        }
+
+        private void open(boolean roll) throws IOException {
+            File directory = new File(DIRECTORY);
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("cannot create directory");
+            }
+            File current = new File(directory, FILENAME);
+            if (file != null) {
+                file.close();
+                file = null;
+            }
+            if (roll) {
+                new File(directory, FILENAME + "." + (MAX_FILES - 1)).delete();
+                for (int i = MAX_FILES - 2; i >= 1; i--) {
+                    new File(directory, FILENAME + "." + i).renameTo(new File(directory, FILENAME + "." + (i + 1)));
+                }
+                if (MAX_FILES > 1) {
+                    current.renameTo(new File(directory, FILENAME + ".1"));
+                } else {
+                    current.delete();
+                }
+            }
+            fileBytes = current.length();
+            file = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(current, true), StandardCharsets.UTF_8), 1 << 16);
+        }
+
+        private void flushFile() {
+            if (file != null) {
+                try {
+                    file.flush();
+                } catch (IOException e) {
+                    fileFailed = true;
+                    System.err.println("Logging to " + DIRECTORY + " disabled: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package utils;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide registry of named counters, gauges and histograms.
+ *
+ * Metrics are looked up once, typically into a static final field, and then
+ * updated directly: a counter is a LongAdder and a histogram a
+ * {@link Histogram} or {@link LatencyStats}, so the hot path takes no lock
+ * and allocates nothing. Gauges are read only when a snapshot is taken; a
+ * gauge registered again under the same name replaces the old one.
+ *
+ * {@link #startReporting} publishes everything as the JMX bean
+ * {@code banking:type=Metrics} and appends a CSV snapshot to
+ * {@code metrics-<date>.csv} in the given directory every
+ * {@code banking.metrics.intervalSeconds} (60; 0 turns the dump off).
+ * Latencies are reported in milliseconds.
+ */
+public final class Metrics {
+
+    private static final Log LOG = Log.get(Metrics.class);
+    private static final long INTERVAL_SECONDS = Long.getLong("banking.metrics.intervalSeconds", 60);
+    private static final String OBJECT_NAME = "banking:type=Metrics";
+    private static final String CSV_HEADER = "time,name,type,count,value,mean,p50,p99,p999,max";
+
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentSkipListMap<>();
+    private static final Map<String, LongSupplier> GAUGES = new ConcurrentSkipListMap<>();
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentSkipListMap<>();
+
+    private static ScheduledExecutorService reporter;
+    private static ScheduledFuture<?> dump;
+    private static File directory;
+
+    private Metrics() {
+    }
+
+    public static LongAdder counter(String name) {
+        return COUNTERS.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    public static void gauge(String name, LongSupplier value) {
+        GAUGES.put(name, value);
+    }
+
+    /**
+     * A histogram of plain values, e.g. bytes per write.
+     */
+    public static Histogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    /**
+     * A histogram of durations recorded in nanoseconds.
+     */
+    public static LatencyStats latency(String name) {
+        Histogram histogram = HISTOGRAMS.computeIfAbsent(name, key -> new LatencyStats());
+        if (!(histogram instanceof LatencyStats)) {
+            throw new IllegalArgumentException(name + " is not a latency histogram");
+        }
+        return (LatencyStats) histogram;
+    }
+
+    /**
+     * Registers the JMX bean and starts the periodic CSV dump into
+     * {@code metricsDirectory}. Later calls only move the dump elsewhere.
+     */
+    public static synchronized void startReporting(File metricsDirectory) {
+        directory = metricsDirectory;
+        if (reporter != null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MetricsBean(), name);
+            }
+        } catch (JMException e) {
+            LOG.warn("Could not register metrics with JMX: {}", e.getMessage());
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (INTERVAL_SECONDS > 0) {
+            dump = reporter.scheduleAtFixedRate(Metrics::dump, INTERVAL_SECONDS, INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Stops the periodic dump after writing a last snapshot.
+     */
+    public static synchronized void stopReporting() {
+        if (reporter == null) {
+            return;
+        }
+        if (dump != null) {
+            dump.cancel(false);
+            dump = null;
+        }
+        reporter.shutdown();
+        reporter = null;
+        dump();
+    }
+
+    /**
+     * Current values as aligned text, one metric per line.
+     */
+    public static String snapshot() {
+        StringBuilder text = new StringBuilder();
+        for (String[] row : rows()) {
+            text.append(String.format("%-32s %-9s", row[1], row[2]));
+            if (row[2].equals("counter") || row[2].equals("gauge")) {
+                text.append(" ").append(row[4]);
+            } else {
+                String unit = row[2].equals("latency") ? "ms" : "";
+                text.append(String.format(" count=%s mean=%s%s p50=%s%s p99=%s%s p999=%s%s max=%s%s", row[3],
+                        row[5], unit, row[6], unit, row[7], unit, row[8], unit, row[9], unit));
+            }
+            text.append(System.lineSeparator());
+        }
+        return text.toString();
+    }
+
+    /**
+     * Appends a snapshot to today's CSV file; does nothing before {@link #startReporting}.
+     */
+    public static synchronized void dump() {
+        if (directory == null) {
+            return;
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            LOG.error("Could not create metrics directory {}", directory);
+            return;
+        }
+        File file = new File(directory, "metrics-" + LocalDate.now() + ".csv");
+        boolean created = !file.exists();
+        try (PrintWriter out = new PrintWriter(new FileWriter(file, true))) {
+            if (created) {
+                out.println(CSV_HEADER);
+            }
+            for (String[] row : rows()) {
+                out.println(String.join(",", row));
+            }
+        } catch (IOException e) {
+            LOG.error("Error writing metrics to {}: {}", file, e.getMessage());
+        }
+    }
+
+    // time, name, type, count, value, mean, p50, p99, p999, max
+    private static List<String[]> rows() {
+        String time = LocalDateTime.now().withNano(0).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        List<String[]> rows = new ArrayList<>();
+        COUNTERS.forEach((name, counter) -> rows.add(new String[] {
+                time, name, "counter", "", String.valueOf(counter.sum()), "", "", "", "", ""}));
+        GAUGES.forEach((name, gauge) -> rows.add(new String[] {
+                time, name, "gauge", "", String.valueOf(readGauge(name, gauge)), "", "", "", "", ""}));
+        HISTOGRAMS.forEach((name, histogram) -> {
+            if (histogram instanceof LatencyStats) {
+                LatencyStats latency = (LatencyStats) histogram;
+                rows.add(new String[] {time, name, "latency", String.valueOf(latency.getCount()), "",
+                        millis(latency.getMeanMillis()), millis(latency.getPercentileMillis(50)),
+                        millis(latency.getPercentileMillis(99)), millis(latency.getPercentileMillis(99.9)),
+                        millis(latency.getMaxMillis())});
+            } else {
+                rows.add(new String[] {time, name, "histogram", String.valueOf(histogram.getCount()), "",
+                        String.format(Locale.ROOT, "%.1f", histogram.getMean()),
+                        String.valueOf(histogram.getValueAtPercentile(50)),
+                        String.valueOf(histogram.getValueAtPercentile(99)),
+                        String.valueOf(histogram.getValueAtPercentile(99.9)),
+                        String.valueOf(histogram.getMax())});
+            }
+        });
+        return rows;
+    }
+
+    private static long readGauge(String name, LongSupplier gauge) {
+        try {
+            return gauge.getAsLong();
+        } catch (RuntimeException e) {
+            LOG.warn("Gauge {} failed: {}", name, e.getMessage());
+            return -1;
+        }
+    }
+
+    private static String millis(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    /**
+     * Counters and gauges as long attributes named after the metric;
+     * histograms as {@code <name>.count}, {@code .mean}, {@code .p50},
+     * {@code .p99}, {@code .p999} and {@code .max} (milliseconds for latencies).
+     */
+    private static final class MetricsBean implements DynamicMBean {
+
+        private static final String[] STATISTICS = {"count", "mean", "p50", "p99", "p999", "max"};
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            LongAdder counter = COUNTERS.get(attribute);
+            if (counter != null) {
+                return counter.sum();
+            }
+            LongSupplier gauge = GAUGES.get(attribute);
+            if (gauge != null) {
+                return readGauge(attribute, gauge);
+            }
+            int dot = attribute.lastIndexOf('.');
+            Histogram histogram = dot > 0 ? HISTOGRAMS.get(attribute.substring(0, dot)) : null;
+            if (histogram == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            double scale = histogram instanceof LatencyStats ? 1e6 : 1;
+            switch (attribute.substring(dot + 1)) {
+                case "count":
+                    return (double) histogram.getCount();
+                case "mean":
+                    return histogram.getMean() / scale;
+                case "p50":
+                    return histogram.getValueAtPercentile(50) / scale;
+                case "p99":
+                    return histogram.getValueAtPercentile(99) / scale;
+                case "p999":
+                    return histogram.getValueAtPercentile(99.9) / scale;
+                case "max":
+                    return histogram.getMax() / scale;
+                default:
+                    throw new AttributeNotFoundException(attribute);
+            }
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    list.add(new Attribute(attribute, getAttribute(attribute)));
+                } catch (AttributeNotFoundException e) {
+                    // Left out, as the DynamicMBean contract allows
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only");
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) {
+            throw new UnsupportedOperationException("No operations");
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (String name : COUNTERS.keySet()) {
+                attributes.add(new MBeanAttributeInfo(name, "long", "Counter", true, false, false));
+            }
+            for (String name : GAUGES.keySet()) {
+                attributes.add(new MBeanAttributeInfo(name, "long", "Gauge", true, false, false));
+            }
+            for (Map.Entry<String, Histogram> entry : HISTOGRAMS.entrySet()) {
+                String unit = entry.getValue() instanceof LatencyStats ? " (ms)" : "";
+                for (String statistic : STATISTICS) {
+                    attributes.add(new MBeanAttributeInfo(entry.getKey() + "." + statistic, "double",
+                            statistic + unit, true, false, false));
+                }
+            }
+            return new MBeanInfo(Metrics.class.getName(), "Banking service metrics",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package utils;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Salted, deliberately slow PIN hashing (PBKDF2 with HMAC-SHA256).
+ *
+ * Hashes are encoded as {@code pbkdf2-sha256$<iterations>$<salt>$<hash>}
+ * (Base64), so the cost can be raised with the {@code banking.pin.iterations}
+ * system property without invalidating hashes already stored; see
+ * {@link #needsRehash}.
+ */
+public class PinHasher {
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2-sha256$";
+    private static final int ITERATIONS = Integer.getInteger("banking.pin.iterations", 120_000);
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private PinHasher() {
+    }
+
+    /**
+     * Hashes a PIN with a fresh random salt.
+     */
+    public static String hash(String pin) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + ITERATIONS + "$" + base64.encodeToString(salt) + "$"
+                + base64.encodeToString(derive(pin, salt, ITERATIONS));
+    }
+
+    /**
+     * Checks a PIN against an encoded hash in time independent of where they differ.
+     * A malformed hash never verifies.
+     */
+    public static boolean verify(String pin, String encoded) {
+        if (pin == null || !isHash(encoded)) {
+            return false;
+        }
+        String[] parts = encoded.substring(PREFIX.length()).split("\\$");
+        if (parts.length != 3) {
+            return false;
+        }
+        try {
+            int iterations = Integer.parseInt(parts[0]);
+            byte[] salt = Base64.getDecoder().decode(parts[1]);
+            byte[] expected = Base64.getDecoder().decode(parts[2]);
+            return MessageDigest.isEqual(expected, derive(pin, salt, iterations));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Compares a PIN with a plaintext one left by older versions, without
+     * leaking the position of the first difference.
+     */
+    public static boolean matchesPlaintext(String pin, String plaintext) {
+        if (pin == null || plaintext == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(pin.getBytes(StandardCharsets.UTF_8), plaintext.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Whether {@code value} is a hash produced by this class, as opposed to a plaintext PIN.
+     */
+    public static boolean isHash(String value) {
+        return value != null && value.startsWith(PREFIX);
+    }
+
+    /**
+     * Whether a hash was made with a different cost than the current one.
+     */
+    public static boolean needsRehash(String encoded) {
+        return !encoded.startsWith(PREFIX + ITERATIONS + "$");
+    }
+
+    private static byte[] derive(String pin, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(pin.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
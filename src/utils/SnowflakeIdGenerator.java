@@ -0,0 +1,90 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style id generator: 41 bits of milliseconds since a custom epoch,
+ * 10 bits of node id and a 12 bit per-millisecond sequence.
+ *
+ * Ids are unique per node, strictly increasing and ordered by creation time.
+ * The generator is lock-free: the last (millisecond, sequence) pair lives in
+ * one AtomicLong updated by compare-and-set. When more than 4096 ids are
+ * requested within one millisecond the generator borrows the next millisecond
+ * instead of spinning, so it never blocks; the embedded time can briefly run
+ * ahead of the wall clock under that load and catches up once it eases.
+ */
+public class SnowflakeIdGenerator implements IdGenerator {
+
+    // 2024-01-01T00:00:00Z
+    public static final long DEFAULT_EPOCH = 1704067200000L;
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long epoch;
+    private final long nodeBits;
+    // (milliseconds since epoch << SEQUENCE_BITS) | sequence of the last id handed out
+    private final AtomicLong last = new AtomicLong();
+
+    public SnowflakeIdGenerator(int nodeId) {
+        this(nodeId, DEFAULT_EPOCH);
+    }
+
+    public SnowflakeIdGenerator(int nodeId, long epoch) {
+        if (nodeId < 0 || nodeId > MAX_NODE) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE);
+        }
+        this.epoch = epoch;
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+    }
+
+    @Override
+    public long nextId() {
+        long now = (System.currentTimeMillis() - epoch) << SEQUENCE_BITS;
+        while (true) {
+            long previous = last.get();
+            // A new millisecond restarts the sequence; otherwise take the next slot,
+            // which rolls into the following millisecond when the sequence is full
+            long next = now > previous ? now : previous + 1;
+            if (last.compareAndSet(previous, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                return (millis << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * Reserves a block of consecutive (millisecond, sequence) slots with a
+     * single compare-and-set, so bulk callers do not contend per id. Large
+     * blocks borrow future milliseconds the same way bursts do in nextId.
+     */
+    @Override
+    public void nextIds(long[] ids) {
+        if (ids.length == 0) {
+            return;
+        }
+        long now = (System.currentTimeMillis() - epoch) << SEQUENCE_BITS;
+        long first;
+        while (true) {
+            long previous = last.get();
+            first = now > previous ? now : previous + 1;
+            if (last.compareAndSet(previous, first + ids.length - 1)) {
+                break;
+            }
+        }
+        for (int i = 0; i < ids.length; i++) {
+            long slot = first + i;
+            long millis = slot >>> SEQUENCE_BITS;
+            ids[i] = (millis << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | (slot & SEQUENCE_MASK);
+        }
+    }
+
+    /**
+     * Extracts the creation time (epoch milliseconds) embedded in an id.
+     */
+    public long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + epoch;
+    }
+}
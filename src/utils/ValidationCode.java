@@ -0,0 +1,34 @@
+package utils;
+
+/**
+ * Outcome of an {@link InputValidator} check. {@link #VALID} means the value
+ * passed; every other code names the first problem found.
+ */
+public enum ValidationCode {
+    VALID("Valid"),
+    EMPTY("Value is required"),
+    TOO_SHORT("Value is too short"),
+    TOO_LONG("Value is too long"),
+    INVALID_CHARACTER("Value contains an invalid character"),
+    INVALID_PREFIX("Value does not start with the expected prefix"),
+    WRONG_LENGTH("Value does not have the expected number of characters"),
+    INVALID_FORMAT("Value is not in the expected format"),
+    MISSING_AT_SIGN("Email address has no @ sign"),
+    INVALID_DOMAIN("Email address has an invalid domain"),
+    BELOW_MINIMUM("Amount is below the minimum"),
+    DUPLICATE("Value is already used by another account");
+
+    private final String message;
+
+    ValidationCode(String message) {
+        this.message = message;
+    }
+
+    public boolean isValid() {
+        return this == VALID;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -1,56 +1,44 @@
 package utils;
 
-import java.util.regex.Pattern;
+import models.Money;
 
+/**
+ * Boolean validation helpers. Format checks delegate to the single-pass
+ * scanners in {@link InputValidator}; use those directly to find out why a
+ * value was rejected.
+ */
 public class ValidationUtils {
     
-    // Email validation pattern
-    private static final Pattern EMAIL_PATTERN = 
-            Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
-    
-    // Phone number pattern (Indian format)
-    private static final Pattern PHONE_PATTERN = 
-            Pattern.compile("^[6-9]\\d{9}$");
-    
-    // PIN pattern (4 digits)
-    private static final Pattern PIN_PATTERN = 
-            Pattern.compile("^\\d{4}$");
+    // Amount limits in paise
+    private static final long MAX_AMOUNT = 99_999_999_999L; // ₹999999999.99
+    private static final long MINIMUM_BALANCE = 10_000L; // ₹100
     
     /**
      * Validates if the given string is not null and not empty
      */
     public static boolean isNotEmpty(String str) {
-        return str != null && !str.trim().isEmpty();
+        return str != null && InputValidator.trimStart(str) < str.length();
     }
     
     /**
      * Validates email format
      */
     public static boolean isValidEmail(String email) {
-        if (!isNotEmpty(email)) {
-            return false;
-        }
-        return EMAIL_PATTERN.matcher(email.trim()).matches();
+        return InputValidator.checkEmail(email).isValid();
     }
     
     /**
      * Validates phone number format (Indian 10-digit mobile number)
      */
     public static boolean isValidPhoneNumber(String phone) {
-        if (!isNotEmpty(phone)) {
-            return false;
-        }
-        return PHONE_PATTERN.matcher(phone.trim()).matches();
+        return InputValidator.checkPhone(phone).isValid();
     }
     
     /**
      * Validates PIN format (4 digits)
      */
     public static boolean isValidPin(String pin) {
-        if (!isNotEmpty(pin)) {
-            return false;
-        }
-        return PIN_PATTERN.matcher(pin.trim()).matches();
+        return InputValidator.checkPin(pin).isValid();
     }
     
     /**
@@ -62,58 +50,54 @@ public class ValidationUtils {
         }
         
         try {
-            double amount = Double.parseDouble(amountStr.trim());
-            return amount > 0 && amount <= 999999999.99; // Max limit
-        } catch (NumberFormatException e) {
+            return isValidAmount(Money.parseMinor(amountStr));
+        } catch (NumberFormatException | ArithmeticException e) {
             return false;
         }
     }
     
     /**
-     * Validates amount for double value
+     * Validates amount in paise
+     */
+    public static boolean isValidAmount(long amountMinor) {
+        return amountMinor > 0 && amountMinor <= MAX_AMOUNT;
+    }
+    
+    /**
+     * Validates amount
      */
-    public static boolean isValidAmount(double amount) {
-        return amount > 0 && amount <= 999999999.99;
+    public static boolean isValidAmount(Money amount) {
+        return amount != null && isValidAmount(amount.getMinorUnits());
     }
     
     /**
      * Validates customer name (only letters and spaces, 2-50 characters)
      */
     public static boolean isValidName(String name) {
-        if (!isNotEmpty(name)) {
-            return false;
-        }
-        
-        String trimmedName = name.trim();
-        return trimmedName.length() >= 2 && 
-               trimmedName.length() <= 50 && 
-               trimmedName.matches("^[a-zA-Z\\s]+$");
+        return InputValidator.checkName(name).isValid();
     }
     
     /**
      * Validates account number format
      */
     public static boolean isValidAccountNumber(String accountNumber) {
-        if (!isNotEmpty(accountNumber)) {
-            return false;
-        }
-        
-        return accountNumber.trim().matches("^ACC\\d+$");
+        return InputValidator.checkAccountNumber(accountNumber).isValid();
     }
     
     /**
      * Validates minimum deposit amount based on account type
      */
-    public static boolean isValidMinimumDeposit(double amount, String accountType) {
+    public static boolean isValidMinimumDeposit(Money amount, String accountType) {
+        long paise = amount.getMinorUnits();
         switch (accountType.toUpperCase()) {
             case "SAVINGS":
-                return amount >= 1000.0; // Minimum ₹1000 for savings
+                return paise >= 100_000L; // Minimum ₹1000 for savings
             case "CURRENT":
-                return amount >= 5000.0; // Minimum ₹5000 for current
+                return paise >= 500_000L; // Minimum ₹5000 for current
             case "FIXED_DEPOSIT":
-                return amount >= 10000.0; // Minimum ₹10000 for FD
+                return paise >= 1_000_000L; // Minimum ₹10000 for FD
             default:
-                return amount >= 1000.0;
+                return paise >= 100_000L;
         }
     }
     
@@ -121,12 +105,7 @@ public class ValidationUtils {
      * Validates address (must be between 10-200 characters)
      */
     public static boolean isValidAddress(String address) {
-        if (!isNotEmpty(address)) {
-            return false;
-        }
-        
-        String trimmedAddress = address.trim();
-        return trimmedAddress.length() >= 10 && trimmedAddress.length() <= 200;
+        return InputValidator.checkAddress(address).isValid();
     }
     
     /**
@@ -136,23 +115,64 @@ public class ValidationUtils {
         if (input == null) {
             return "";
         }
-        return input.trim().replaceAll("\\s+", " ");
+        int start = InputValidator.trimStart(input);
+        int end = InputValidator.trimEnd(input, start);
+        
+        // Most input is already clean; return it without copying
+        boolean clean = true;
+        for (int i = start; i < end && clean; i++) {
+            char c = input.charAt(i);
+            clean = !InputValidator.isWhitespace(c) || (c == ' ' && !InputValidator.isWhitespace(input.charAt(i + 1)));
+        }
+        if (clean) {
+            return input.substring(start, end);
+        }
+        
+        StringBuilder sb = new StringBuilder(end - start);
+        boolean inWhitespace = false;
+        for (int i = start; i < end; i++) {
+            char c = input.charAt(i);
+            if (InputValidator.isWhitespace(c)) {
+                if (!inWhitespace) {
+                    sb.append(' ');
+                }
+                inWhitespace = true;
+            } else {
+                sb.append(c);
+                inWhitespace = false;
+            }
+        }
+        return sb.toString();
     }
     
     /**
      * Formats amount to 2 decimal places
      */
-    public static String formatAmount(double amount) {
-        return String.format("%.2f", amount);
+    public static String formatAmount(Money amount) {
+        return amount.toString();
     }
     
     /**
-     * Validates withdrawal amount against available balance
+     * Formats an amount in paise to 2 decimal places
      */
-    public static boolean canWithdraw(double withdrawalAmount, double availableBalance) {
+    public static String formatAmount(long amountMinor) {
+        return Money.format(amountMinor);
+    }
+    
+    /**
+     * Validates withdrawal amount against available balance (both in paise)
+     */
+    public static boolean canWithdraw(long withdrawalAmount, long availableBalance) {
         return withdrawalAmount > 0 && 
                withdrawalAmount <= availableBalance && 
-               (availableBalance - withdrawalAmount) >= 100.0; // Minimum balance ₹100
+               (availableBalance - withdrawalAmount) >= MINIMUM_BALANCE; // Minimum balance ₹100
+    }
+    
+    /**
+     * Validates withdrawal amount against available balance
+     */
+    public static boolean canWithdraw(Money withdrawalAmount, Money availableBalance) {
+        return canWithdraw(withdrawalAmount.getMinorUnits(), availableBalance.getMinorUnits());
     }
     
     /**